@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2005-2016 Vincent Vandenschrick. All rights reserved.
+ *
+ *  This file is part of the Jspresso framework.
+ *
+ *  Jspresso is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Jspresso is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with Jspresso.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jspresso.beandocbook;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the rendering of a class section and of a whole class hierarchy
+ * over a synthetic model, the output being encoded and discarded.
+ *
+ * @version $LastChangedRevision: 3701 $
+ * @author Vincent Vandenschrick
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ClassRenderingBenchmark {
+
+  /**
+   * The benchmarked doclet.
+   */
+  @Param({"docbook", "markdown"})
+  public String format;
+
+  /**
+   * The number of classes of the hierarchy.
+   */
+  @Param({"100", "1000"})
+  public int classCount;
+
+  /**
+   * The number of setters of each class.
+   */
+  @Param({"20"})
+  public int propertyCount;
+
+  private AbstractBeanFormatDoclet doclet;
+  private ClassTree          rootClassTree;
+
+  /**
+   * Sets the doclet up over a synthetic hierarchy.
+   *
+   * @throws IOException
+   *           never.
+   */
+  @Setup
+  public void setup() throws IOException {
+    doclet = DocletBenchmarks.createDoclet(format);
+    rootClassTree = DocletBenchmarks.prepare(doclet, StubDocs.createRoot(classCount, propertyCount, 8, StubDocs
+        .createOptions(System.getProperty("java.io.tmpdir"))));
+    DocletBenchmarks.openDiscardingOutput(doclet);
+  }
+
+  /**
+   * Renders the section body of the root class.
+   *
+   * @throws IOException
+   *           never.
+   */
+  @Benchmark
+  public void processClassDoc() throws IOException {
+    doclet.processClassDoc(rootClassTree);
+  }
+
+  /**
+   * Renders the sections of the whole hierarchy.
+   *
+   * @throws IOException
+   *           never.
+   */
+  @Benchmark
+  public void processClassTree() throws IOException {
+    doclet.processClassTree(rootClassTree);
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2005-2016 Vincent Vandenschrick. All rights reserved.
+ *
+ *  This file is part of the Jspresso framework.
+ *
+ *  Jspresso is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Jspresso is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with Jspresso.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jspresso.beandocbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.sun.javadoc.RootDoc;
+
+/**
+ * Entry point of the benchmarks jar, running the JMH benchmarks with the GC
+ * profiler so that the allocation rate is reported along with the
+ * throughput. The command line accepts the usual JMH options, e.g. a
+ * benchmark name pattern. Also sets the doclets up outside of a javadoc run.
+ *
+ * @version $LastChangedRevision: 3701 $
+ * @author Vincent Vandenschrick
+ */
+public final class DocletBenchmarks {
+
+  private DocletBenchmarks() {
+    // Helper class.
+  }
+
+  /**
+   * Runs the benchmarks.
+   *
+   * @param args
+   *          the JMH command line options.
+   * @throws Exception
+   *           whenever the options are invalid or a benchmark fails.
+   */
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().parent(new CommandLineOptions(args)).addProfiler(GCProfiler.class).build()).run();
+  }
+
+  /**
+   * Creates a doclet.
+   *
+   * @param format
+   *          <code>docbook</code> or <code>markdown</code>.
+   * @return the doclet.
+   */
+  static AbstractBeanFormatDoclet createDoclet(String format) {
+    if ("docbook".equals(format)) {
+      return new BeanDocbookDoclet();
+    } else if ("markdown".equals(format)) {
+      return new BeanMarkdownDoclet();
+    }
+    throw new IllegalArgumentException("Unknown format " + format);
+  }
+
+  /**
+   * Sets a doclet up for the synthetic config set of a root doc, as a javadoc
+   * run would before rendering it.
+   *
+   * @param doclet
+   *          the doclet.
+   * @param root
+   *          the root doc created by {@link StubDocs}.
+   * @return the classified root class tree.
+   */
+  static ClassTree prepare(AbstractBeanDoclet doclet, RootDoc root) {
+    doclet.setup(root);
+    return doclet.prepareConfigSet(doclet.getConfigSets().get("bench"));
+  }
+
+  /**
+   * Makes a doclet write to a discarding output, through the same writer as
+   * a generated file.
+   *
+   * @param doclet
+   *          the doclet.
+   * @return the discarding output counting the written bytes.
+   * @throws IOException
+   *           never.
+   */
+  static CountingOutputStream openDiscardingOutput(AbstractBeanDoclet doclet) throws IOException {
+    CountingOutputStream out = new CountingOutputStream();
+    doclet.writer = new Utf8Writer(out, 16 * 1024);
+    doclet.writeHeader();
+    return out;
+  }
+
+  /**
+   * Output stream discarding the bytes it counts.
+   */
+  static final class CountingOutputStream extends OutputStream {
+
+    private long count;
+
+    @Override
+    public void write(int b) {
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      count += len;
+    }
+
+    /**
+     * Gets the number of written bytes.
+     *
+     * @return the count.
+     */
+    long getCount() {
+      return count;
+    }
+  }
+}
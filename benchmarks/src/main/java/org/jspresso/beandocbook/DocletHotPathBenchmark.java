@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2005-2016 Vincent Vandenschrick. All rights reserved.
+ *
+ *  This file is part of the Jspresso framework.
+ *
+ *  Jspresso is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Jspresso is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with Jspresso.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jspresso.beandocbook;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.sun.javadoc.ClassDoc;
+import com.sun.javadoc.MethodDoc;
+import com.sun.javadoc.Type;
+
+/**
+ * Benchmarks the per-property hot paths of the doclets : comment conversion,
+ * name hyphenation, javadoc URLs and setter type rendering. The single pass
+ * HTML to DocBook conversion is also measured against the chain of
+ * <code>replaceAll</code> calls it replaced.
+ *
+ * @version $LastChangedRevision: 3701 $
+ * @author Vincent Vandenschrick
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DocletHotPathBenchmark {
+
+  private static final String COMMENT = "This is the <b>base</b> descriptor of all the <i>components</i>.<p>It "
+      + "holds the <code>name</code>, the <a href=\"#i18n\">translations</a> &amp; the icon of the component, "
+      + "i.e.<ul><li>its <em>properties</em>,</li><li>its rendering <strong>hints</strong>.</li></ul>Reference "
+      + "documentation : see <pre>Map&lt;String, Object&gt; values = new HashMap&lt;&gt;();</pre></p>";
+
+  /**
+   * The benchmarked doclet.
+   */
+  @Param({"docbook", "markdown"})
+  public String format;
+
+  private AbstractBeanFormatDoclet doclet;
+  private ClassDoc           classDoc;
+  private MethodDoc          setter;
+
+  /**
+   * Sets the doclet up over a synthetic hierarchy.
+   */
+  @Setup
+  public void setup() {
+    doclet = DocletBenchmarks.createDoclet(format);
+    ClassTree rootClassTree = DocletBenchmarks.prepare(doclet, StubDocs.createRoot(200, 20, 4, StubDocs.createOptions(
+        System.getProperty("java.io.tmpdir"))));
+    classDoc = rootClassTree.getSortedSubclasses().get(0).getRoot();
+    setter = classDoc.methods()[1];
+  }
+
+  /**
+   * Converts an HTML comment.
+   *
+   * @return the converted comment.
+   */
+  @Benchmark
+  public String javadocToDocText() {
+    return doclet.javadocToDoc(COMMENT);
+  }
+
+  /**
+   * Converts an HTML comment to DocBook in a single pass.
+   *
+   * @return the converted comment.
+   */
+  @Benchmark
+  public String javadocToDocbookTransducer() {
+    return JavadocTransducer.DOCBOOK.convert(COMMENT);
+  }
+
+  /**
+   * Converts an HTML comment to DocBook through the former chain of
+   * <code>replaceAll</code> calls, as a baseline for the transducer.
+   *
+   * @return the converted comment.
+   */
+  @Benchmark
+  public String javadocToDocbookReplaceAll() {
+    String dbSource = COMMENT.replaceAll("<p>", "</para><para>");
+    dbSource = dbSource.replaceAll("<br>", "</para><para>");
+    dbSource = dbSource.replaceAll("<i>", "<emphasis>");
+    dbSource = dbSource.replaceAll("</i>", "</emphasis>");
+    dbSource = dbSource.replaceAll("<b>", "<emphasis role='bold'>");
+    dbSource = dbSource.replaceAll("</b>", "</emphasis>");
+    dbSource = dbSource.replaceAll("<ul>", "<itemizedlist>");
+    dbSource = dbSource.replaceAll("</ul>", "</itemizedlist>");
+    dbSource = dbSource.replaceAll("<ol>", "<orderedlist>");
+    dbSource = dbSource.replaceAll("</ol>", "</orderedlist>");
+    dbSource = dbSource.replaceAll("<li>", "<listitem><para>");
+    dbSource = dbSource.replaceAll("</li>", "</para></listitem>");
+    dbSource = dbSource.replaceAll("<pre>", "<programlisting>");
+    dbSource = dbSource.replaceAll("</pre>", "</programlisting>");
+    dbSource = dbSource.replaceAll("\\{@code ([^\\}]*)}", "<code>$1</code>");
+    return dbSource;
+  }
+
+  /**
+   * Converts a setter comment, including its inline tags and links.
+   *
+   * @return the converted comment.
+   */
+  @Benchmark
+  public String javadocToDocComment() {
+    return doclet.javadocToDoc(setter);
+  }
+
+  /**
+   * Hyphenates a simple class name.
+   *
+   * @return the hyphenated name.
+   */
+  @Benchmark
+  public String hyphenateCamelCase() {
+    return doclet.hyphenateCamelCase("BasicCollectionPropertyDescriptor");
+  }
+
+  /**
+   * Hyphenates a qualified class name.
+   *
+   * @return the hyphenated name.
+   */
+  @Benchmark
+  public String hyphenateDottedString() {
+    return doclet.hyphenateDottedString("org.jspresso.framework.model.descriptor.basic"
+        + ".BasicCollectionPropertyDescriptor");
+  }
+
+  /**
+   * Computes a javadoc URL.
+   *
+   * @return the URL.
+   */
+  @Benchmark
+  public String computeJavadocUrl() {
+    return doclet.computeJavadocUrl("org.jspresso.framework.model.descriptor.basic"
+        + ".BasicCollectionPropertyDescriptor");
+  }
+
+  /**
+   * Runs the setter type rendering block of a class section : collecting the
+   * documented setters by property and rendering their types, memoized as in
+   * a real run.
+   *
+   * @param blackhole
+   *          the blackhole consuming the markup.
+   */
+  @Benchmark
+  public void renderSetterTypes(Blackhole blackhole) {
+    for (Map.Entry<String, MethodDoc> propEntry : collectProperties().entrySet()) {
+      blackhole.consume(doclet.renderType(propEntry.getValue().parameters()[0].type()));
+    }
+  }
+
+  /**
+   * Runs the setter type rendering block of a class section, rendering every
+   * type from scratch.
+   *
+   * @param blackhole
+   *          the blackhole consuming the markup.
+   */
+  @Benchmark
+  public void renderSetterTypesUncached(Blackhole blackhole) {
+    TypeRenderer typeRenderer = new TypeRenderer();
+    for (Map.Entry<String, MethodDoc> propEntry : collectProperties().entrySet()) {
+      Type type = propEntry.getValue().parameters()[0].type();
+      blackhole.consume(typeRenderer.render(type, doclet));
+    }
+  }
+
+  private Map<String, MethodDoc> collectProperties() {
+    Map<String, MethodDoc> propertiesMap = new TreeMap<String, MethodDoc>();
+    for (MethodDoc methodDoc : classDoc.methods()) {
+      if (doclet.isSetterForRefDoc(methodDoc)) {
+        propertiesMap.put(doclet.getProperty(methodDoc), methodDoc);
+      }
+    }
+    return propertiesMap;
+  }
+}
@@ -0,0 +1,827 @@
+/*
+ * Copyright (c) 2005-2016 Vincent Vandenschrick. All rights reserved.
+ *
+ *  This file is part of the Jspresso framework.
+ *
+ *  Jspresso is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Jspresso is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with Jspresso.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jspresso.beandocbook;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.sun.javadoc.ClassDoc;
+import com.sun.javadoc.Doc;
+import com.sun.javadoc.MethodDoc;
+import com.sun.javadoc.PackageDoc;
+import com.sun.javadoc.Parameter;
+import com.sun.javadoc.ParameterizedType;
+import com.sun.javadoc.RootDoc;
+import com.sun.javadoc.SeeTag;
+import com.sun.javadoc.Tag;
+import com.sun.javadoc.Type;
+import com.sun.javadoc.WildcardType;
+
+/**
+ * Generator of synthetic javadoc models of a bean hierarchy, standing for a
+ * javadoc run over application sources. Classes form a tree rooted at
+ * <code>org.jspresso.bench.model.Bean0</code>, of the configured fan-out and
+ * depth ; each one declares setters of primitive, external, framework,
+ * parameterized and wildcard types, commented with HTML,
+ * <code>{&#64;link}</code>, <code>{&#64;code}</code> and
+ * <code>{&#64;inheritDoc}</code> tags, a share of the classes and setters
+ * being <code>&#64;internal</code> or <code>&#64;deprecated</code>. Elements
+ * are proxies answering the part of the doclet API the bean doclets use. The
+ * generation is deterministic for a given seed, and comment bodies are shared
+ * out of a pool so that large models stay affordable.
+ *
+ * @version $LastChangedRevision: 3701 $
+ * @author Vincent Vandenschrick
+ */
+public final class StubDocs {
+
+  /**
+   * The package of the synthetic beans.
+   */
+  public static final String PACKAGE         = "org.jspresso.bench.model";
+
+  /**
+   * The qualified name of the root bean.
+   */
+  public static final String ROOT_CLASS_NAME = PACKAGE + ".Bean0";
+
+  private static final int      COMMENT_POOL_SIZE = 256;
+  private static final String[] WORDS             = {"the", "bean", "property", "value", "component", "model",
+      "descriptor", "collection", "reference", "is", "used", "when", "rendering", "a", "view", "of", "and",
+      "action", "backend", "controller", "frontend", "entity", "to", "translated", "name", "icon", "i18n"};
+  private static final String[] MARKUP            = {"b", "i", "code", "em", "strong", "tt"};
+
+  private int    classCount;
+  private int    maxDepth;
+  private int    fanOut;
+  private int    propertyCount;
+  private int    commentWords;
+  private double htmlDensity;
+  private double internalRatio;
+  private double deprecatedRatio;
+  private long   seed;
+
+  private Random                  random;
+  private Map<String, ClassDoc>   externalClasses;
+  private Map<String, PackageDoc> packages;
+  private ClassDoc[]              classes;
+  private int[]                   depths;
+  private MethodDoc[]             descriptionSetters;
+  private Tag[]                   links;
+  private Type[]                  listTypes;
+  private Type[]                  mapTypes;
+  private Tag[]                   commentPool;
+
+  /**
+   * Constructs a new <code>StubDocs</code> instance generating a thousand
+   * classes.
+   */
+  public StubDocs() {
+    classCount = 1000;
+    maxDepth = 8;
+    fanOut = 4;
+    propertyCount = 10;
+    commentWords = 40;
+    htmlDensity = 0.2;
+    internalRatio = 0.02;
+    deprecatedRatio = 0.05;
+  }
+
+  /**
+   * Creates a synthetic root doc with the default generation parameters,
+   * besides the sizing ones.
+   *
+   * @param classCount
+   *          the number of beans.
+   * @param propertyCount
+   *          the number of setters declared by each bean, besides the
+   *          overridden description one.
+   * @param fanOut
+   *          the number of direct subclasses of each bean.
+   * @param options
+   *          the doclet options returned by the root doc.
+   * @return the root doc.
+   */
+  public static RootDoc createRoot(int classCount, int propertyCount, int fanOut, String[][] options) {
+    StubDocs docs = new StubDocs();
+    docs.setClassCount(classCount);
+    docs.setPropertyCount(propertyCount);
+    docs.setFanOut(fanOut);
+    docs.setMaxDepth(Integer.MAX_VALUE);
+    return docs.createRoot(options);
+  }
+
+  /**
+   * Creates the doclet options documenting the synthetic hierarchy.
+   *
+   * @param outputDir
+   *          the output directory.
+   * @param extraOptions
+   *          additional options, flattened.
+   * @return the options.
+   */
+  public static String[][] createOptions(String outputDir, String... extraOptions) {
+    List<String[]> options = new ArrayList<String[]>();
+    options.add(new String[] {"-outputDir", outputDir});
+    options.add(new String[] {"-apidocUrl", "http://www.jspresso.org/external/maven-site/apidocs"});
+    options.add(new String[] {"-rootClassName_bench", ROOT_CLASS_NAME});
+    for (int i = 0; i < extraOptions.length; ) {
+      int length = AbstractBeanDoclet.optionLength(extraOptions[i]);
+      if (length <= 0 || i + length > extraOptions.length) {
+        throw new IllegalArgumentException("Invalid option " + extraOptions[i]);
+      }
+      String[] option = new String[length];
+      System.arraycopy(extraOptions, i, option, 0, length);
+      options.add(option);
+      i += length;
+    }
+    return options.toArray(new String[options.size()][]);
+  }
+
+  /**
+   * Generates a synthetic root doc out of the current parameters.
+   *
+   * @param options
+   *          the doclet options returned by the root doc.
+   * @return the root doc.
+   */
+  public RootDoc createRoot(String[][] options) {
+    random = new Random(seed);
+    externalClasses = new HashMap<String, ClassDoc>();
+    packages = new HashMap<String, PackageDoc>();
+    classes = new ClassDoc[classCount];
+    depths = new int[classCount];
+    descriptionSetters = new MethodDoc[classCount];
+    links = new Tag[classCount];
+    listTypes = new Type[classCount];
+    mapTypes = new Type[classCount];
+    commentPool = new Tag[COMMENT_POOL_SIZE];
+    for (int i = 0; i < commentPool.length; i++) {
+      commentPool[i] = new TagElement("Text", createCommentText()).proxy();
+    }
+    // Classes are numbered breadth-first, so that the ones that may still
+    // have subclasses within the maximum depth form a prefix.
+    int parentableCount = classCount;
+    for (int i = 0; i < classCount; i++) {
+      ClassElement superclass = null;
+      if (i > 0) {
+        int parent = (i - 1) / Math.max(1, fanOut);
+        if (depths[parent] >= maxDepth) {
+          parentableCount = Math.min(parentableCount, parent);
+          parent = (i - 1) % Math.max(1, parentableCount);
+        }
+        depths[i] = depths[parent] + 1;
+        superclass = element(classes[parent]);
+      }
+      classes[i] = new ClassElement(i, superclass).proxy();
+    }
+    for (ClassDoc classDoc : classes) {
+      createMethods(classDoc);
+    }
+    return new RootElement(classes, options).proxy();
+  }
+
+  private void createMethods(ClassDoc classDoc) {
+    ClassElement classElement = element(classDoc);
+    List<MethodDoc> methods = new ArrayList<MethodDoc>();
+    MethodDoc overridden = classElement.superclass != null ? descriptionSetters[classElement.superclass.index] : null;
+    Tag[] descriptionTags;
+    if (overridden == null) {
+      descriptionTags = new Tag[] {new TagElement("Text", "Sets the <b>description</b> of the bean.").proxy()};
+    } else {
+      descriptionTags = new Tag[] {new TagElement("@inheritDoc", "").proxy(), new TagElement("Text",
+          " Overridden by " + classElement.name + ".").proxy()};
+    }
+    descriptionSetters[classElement.index] = new MethodElement(classDoc, "setDescription", getExternalClass(
+        "java.lang.String"), descriptionTags, overridden, null).proxy();
+    methods.add(descriptionSetters[classElement.index]);
+    for (int j = 0; j < propertyCount; j++) {
+      String property = "property" + classElement.index + "x" + j;
+      int related = random.nextInt(classCount);
+      Type type;
+      switch (j % 5) {
+        case 0:
+          type = getExternalClass("java.lang.String");
+          break;
+        case 1:
+          type = new TypeElement("int", "int", null, null).type(Type.class);
+          break;
+        case 2:
+          type = classes[related];
+          break;
+        case 3:
+          type = getListType(related);
+          break;
+        default:
+          type = getMapType(related);
+          break;
+      }
+      Tag[] tags = new Tag[] {
+          new TagElement("Text", "Sets the <b>" + property + "</b> property. ").proxy(),
+          commentPool[random.nextInt(commentPool.length)],
+          new TagElement("Text", " It references ").proxy(),
+          getLink(related),
+          new TagElement("@code", property + " != null").proxy()
+      };
+      String setterName = "set" + Character.toUpperCase(property.charAt(0)) + property.substring(1);
+      methods.add(new MethodElement(classDoc, setterName, type, tags, null, createFlagTags()).proxy());
+      if (j % 3 == 0) {
+        methods.add(new MethodElement(classDoc, "get" + setterName.substring(3), null, new Tag[0], null, null)
+            .proxy());
+      }
+    }
+    classElement.methods = methods.toArray(new MethodDoc[methods.size()]);
+  }
+
+  private String createCommentText() {
+    StringBuilder buff = new StringBuilder();
+    for (int i = 0; i < commentWords; i++) {
+      if (i > 0) {
+        buff.append(i % 17 == 0 && random.nextDouble() < htmlDensity ? (random.nextBoolean() ? "<p>" : "<br>")
+            : " ");
+      }
+      String word = WORDS[random.nextInt(WORDS.length)];
+      if (random.nextDouble() < htmlDensity) {
+        String markup = MARKUP[random.nextInt(MARKUP.length)];
+        buff.append('<').append(markup).append('>').append(word).append("</").append(markup).append('>');
+      } else if (random.nextDouble() < htmlDensity / 4) {
+        buff.append(word).append(" &amp;");
+      } else {
+        buff.append(word);
+      }
+    }
+    return buff.append('.').toString();
+  }
+
+  private Tag[] createFlagTags() {
+    List<Tag> tags = new ArrayList<Tag>();
+    if (random.nextDouble() < internalRatio) {
+      tags.add(new TagElement("@internal", "").proxy());
+    }
+    if (random.nextDouble() < deprecatedRatio) {
+      tags.add(new TagElement("@deprecated", "Not used anymore.").proxy());
+    }
+    return tags.toArray(new Tag[tags.size()]);
+  }
+
+  private Tag getLink(int target) {
+    if (links[target] == null) {
+      links[target] = new TagElement("@link", classes[target]).proxy();
+    }
+    return links[target];
+  }
+
+  private Type getListType(int argument) {
+    if (listTypes[argument] == null) {
+      listTypes[argument] = new TypeElement(getExternalClass("java.util.List"), classes[argument]).type(
+          ParameterizedType.class);
+    }
+    return listTypes[argument];
+  }
+
+  private Type getMapType(int argument) {
+    if (mapTypes[argument] == null) {
+      TypeElement wildcard = new TypeElement("?", "?", null, null);
+      wildcard.extendsBounds = new Type[] {classes[argument]};
+      mapTypes[argument] = new TypeElement(getExternalClass("java.util.Map"), getExternalClass("java.lang.String"),
+          wildcard.type(WildcardType.class)).type(ParameterizedType.class);
+    }
+    return mapTypes[argument];
+  }
+
+  private ClassDoc getExternalClass(String qualifiedName) {
+    ClassDoc classDoc = externalClasses.get(qualifiedName);
+    if (classDoc == null) {
+      ClassDoc superclass = "java.lang.Object".equals(qualifiedName) ? null : getExternalClass("java.lang.Object");
+      classDoc = new ClassElement(qualifiedName, superclass).proxy();
+      externalClasses.put(qualifiedName, classDoc);
+    }
+    return classDoc;
+  }
+
+  private PackageDoc getPackage(String name) {
+    PackageDoc packageDoc = packages.get(name);
+    if (packageDoc == null) {
+      packageDoc = (PackageDoc) new PackageElement(name).proxy(PackageDoc.class);
+      packages.put(name, packageDoc);
+    }
+    return packageDoc;
+  }
+
+  private static ClassElement element(ClassDoc classDoc) {
+    return classDoc != null ? (ClassElement) Proxy.getInvocationHandler(classDoc) : null;
+  }
+
+  private static Tag[] filterTags(Tag[] tags, Object[] args) {
+    if (args == null || args.length == 0) {
+      return tags.clone();
+    }
+    List<Tag> filtered = new ArrayList<Tag>();
+    for (Tag tag : tags) {
+      if (tag.name().equals(args[0]) || tag.name().equals("@" + args[0])) {
+        filtered.add(tag);
+      }
+    }
+    return filtered.toArray(new Tag[filtered.size()]);
+  }
+
+  /**
+   * Sets the number of classes.
+   *
+   * @param classCount
+   *          the number of classes.
+   */
+  public void setClassCount(int classCount) {
+    this.classCount = classCount;
+  }
+
+  /**
+   * Sets the maximum depth of the hierarchy, the root class being at depth 0.
+   *
+   * @param maxDepth
+   *          the maximum depth.
+   */
+  public void setMaxDepth(int maxDepth) {
+    this.maxDepth = maxDepth;
+  }
+
+  /**
+   * Sets the number of direct subclasses of each class, exceeded when the
+   * maximum depth is reached.
+   *
+   * @param fanOut
+   *          the fan-out.
+   */
+  public void setFanOut(int fanOut) {
+    this.fanOut = fanOut;
+  }
+
+  /**
+   * Sets the number of setters of each class, besides the overridden
+   * description one.
+   *
+   * @param propertyCount
+   *          the number of setters.
+   */
+  public void setPropertyCount(int propertyCount) {
+    this.propertyCount = propertyCount;
+  }
+
+  /**
+   * Sets the number of words of the comments.
+   *
+   * @param commentWords
+   *          the number of words.
+   */
+  public void setCommentWords(int commentWords) {
+    this.commentWords = commentWords;
+  }
+
+  /**
+   * Sets the share of the comment words wrapped in HTML markup.
+   *
+   * @param htmlDensity
+   *          the share, between 0 and 1.
+   */
+  public void setHtmlDensity(double htmlDensity) {
+    this.htmlDensity = htmlDensity;
+  }
+
+  /**
+   * Sets the share of <code>&#64;internal</code> classes and setters.
+   *
+   * @param internalRatio
+   *          the share, between 0 and 1.
+   */
+  public void setInternalRatio(double internalRatio) {
+    this.internalRatio = internalRatio;
+  }
+
+  /**
+   * Sets the share of <code>&#64;deprecated</code> classes and setters.
+   *
+   * @param deprecatedRatio
+   *          the share, between 0 and 1.
+   */
+  public void setDeprecatedRatio(double deprecatedRatio) {
+    this.deprecatedRatio = deprecatedRatio;
+  }
+
+  /**
+   * Sets the seed of the generation.
+   *
+   * @param seed
+   *          the seed.
+   */
+  public void setSeed(long seed) {
+    this.seed = seed;
+  }
+
+  /**
+   * A doclet API element. Methods it does not answer are reported as
+   * unsupported.
+   */
+  private abstract static class Element implements InvocationHandler {
+
+    Object proxy(Class<?> docType) {
+      return Proxy.newProxyInstance(StubDocs.class.getClassLoader(), new Class<?>[] {docType}, this);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+      String name = method.getName();
+      if ("equals".equals(name) && method.getParameterTypes().length == 1) {
+        return proxy == args[0];
+      } else if ("hashCode".equals(name) && method.getParameterTypes().length == 0) {
+        return System.identityHashCode(proxy);
+      } else if ("compareTo".equals(name)) {
+        return ((Doc) proxy).name().compareTo(((Doc) args[0]).name());
+      }
+      Object result = answer(proxy, name, args);
+      if (result == this) {
+        throw new UnsupportedOperationException(name + " is not stubbed");
+      }
+      return result;
+    }
+
+    /**
+     * Answers a doclet API method.
+     *
+     * @param proxy
+     *          the proxy.
+     * @param method
+     *          the method name.
+     * @param args
+     *          the method arguments.
+     * @return the result or this element if the method is not supported.
+     */
+    abstract Object answer(Object proxy, String method, Object[] args);
+  }
+
+  /**
+   * The root doc.
+   */
+  private static final class RootElement extends Element {
+
+    private final ClassDoc[] classes;
+    private final String[][] options;
+
+    private RootElement(ClassDoc[] classes, String[][] options) {
+      this.classes = classes;
+      this.options = options;
+    }
+
+    private RootDoc proxy() {
+      return (RootDoc) proxy(RootDoc.class);
+    }
+
+    @Override
+    Object answer(Object proxy, String method, Object[] args) {
+      if ("classes".equals(method) || "specifiedClasses".equals(method)) {
+        return classes.clone();
+      } else if ("options".equals(method)) {
+        return options;
+      } else if ("printNotice".equals(method)) {
+        System.out.println(args[args.length - 1]);
+        return null;
+      } else if ("printWarning".equals(method) || "printError".equals(method)) {
+        System.err.println(args[args.length - 1]);
+        return null;
+      } else if ("name".equals(method) || "toString".equals(method)) {
+        return "";
+      }
+      return this;
+    }
+  }
+
+  /**
+   * A package.
+   */
+  private static final class PackageElement extends Element {
+
+    private final String name;
+
+    private PackageElement(String name) {
+      this.name = name;
+    }
+
+    @Override
+    Object answer(Object proxy, String method, Object[] args) {
+      if ("name".equals(method) || "toString".equals(method)) {
+        return name;
+      }
+      return this;
+    }
+  }
+
+  /**
+   * A non-class type : a primitive, parameterized or wildcard type.
+   */
+  private static final class TypeElement extends Element {
+
+    private final String   qualifiedName;
+    private final String   simpleName;
+    private final ClassDoc rawType;
+    private final Type[]   typeArguments;
+    private Type[]         extendsBounds;
+
+    private TypeElement(String qualifiedName, String simpleName, ClassDoc rawType, Type[] typeArguments) {
+      this.qualifiedName = qualifiedName;
+      this.simpleName = simpleName;
+      this.rawType = rawType;
+      this.typeArguments = typeArguments;
+    }
+
+    private TypeElement(ClassDoc rawType, Type... typeArguments) {
+      this(rawType.qualifiedTypeName(), rawType.simpleTypeName(), rawType, typeArguments);
+    }
+
+    private Type type(Class<? extends Type> typeType) {
+      return (Type) proxy(typeType);
+    }
+
+    @Override
+    Object answer(Object proxy, String method, Object[] args) {
+      if ("qualifiedTypeName".equals(method)) {
+        return qualifiedName;
+      } else if ("simpleTypeName".equals(method) || "typeName".equals(method)) {
+        return simpleName;
+      } else if ("dimension".equals(method)) {
+        return "";
+      } else if ("toString".equals(method)) {
+        if (extendsBounds != null) {
+          return "? extends " + extendsBounds[0];
+        } else if (typeArguments != null) {
+          StringBuilder buff = new StringBuilder(qualifiedName).append('<');
+          for (int i = 0; i < typeArguments.length; i++) {
+            buff.append(i == 0 ? "" : ",").append(typeArguments[i]);
+          }
+          return buff.append('>').toString();
+        }
+        return qualifiedName;
+      } else if ("asClassDoc".equals(method)) {
+        return rawType;
+      } else if ("asParameterizedType".equals(method)) {
+        return typeArguments != null ? proxy : null;
+      } else if ("asWildcardType".equals(method)) {
+        return extendsBounds != null ? proxy : null;
+      } else if ("asTypeVariable".equals(method) || "asAnnotatedType".equals(method) || "asAnnotationTypeDoc"
+          .equals(method)) {
+        return null;
+      } else if ("isPrimitive".equals(method)) {
+        return rawType == null && extendsBounds == null;
+      } else if ("typeArguments".equals(method)) {
+        return typeArguments.clone();
+      } else if ("extendsBounds".equals(method)) {
+        return extendsBounds.clone();
+      } else if ("superBounds".equals(method)) {
+        return new Type[0];
+      }
+      return this;
+    }
+  }
+
+  /**
+   * A class, either a generated bean or an external class.
+   */
+  private final class ClassElement extends Element {
+
+    private final int          index;
+    private final String       qualifiedName;
+    private final String       name;
+    private final ClassElement superclass;
+    private final ClassDoc     superclassDoc;
+    private final PackageDoc   containingPackage;
+    private final Tag[]        inlineTags;
+    private final Tag[]        tags;
+    private MethodDoc[]        methods;
+
+    private ClassElement(int index, ClassElement superclass) {
+      this.index = index;
+      this.qualifiedName = PACKAGE + ".Bean" + index;
+      this.name = "Bean" + index;
+      this.superclass = superclass;
+      this.superclassDoc = superclass != null ? classes[superclass.index] : getExternalClass("java.lang.Object");
+      this.containingPackage = getPackage(PACKAGE);
+      this.inlineTags = new Tag[] {
+          new TagElement("Text", "The <b>" + name + "</b> bean. ").proxy(),
+          commentPool[random.nextInt(commentPool.length)],
+          new TagElement("Text", " It extends ").proxy(),
+          new TagElement("@link", superclassDoc).proxy(),
+          new TagElement("Text", ".").proxy()
+      };
+      this.tags = index > 0 ? createFlagTags() : new Tag[0];
+    }
+
+    private ClassElement(String qualifiedName, ClassDoc superclassDoc) {
+      this.index = -1;
+      this.qualifiedName = qualifiedName;
+      this.name = qualifiedName.substring(qualifiedName.lastIndexOf('.') + 1);
+      this.superclass = null;
+      this.superclassDoc = superclassDoc;
+      this.containingPackage = getPackage(qualifiedName.substring(0, qualifiedName.lastIndexOf('.')));
+      this.inlineTags = new Tag[0];
+      this.tags = new Tag[0];
+      this.methods = new MethodDoc[0];
+    }
+
+    private ClassDoc proxy() {
+      return (ClassDoc) proxy(ClassDoc.class);
+    }
+
+    @Override
+    Object answer(Object proxy, String method, Object[] args) {
+      if ("qualifiedTypeName".equals(method) || "qualifiedName".equals(method) || "toString".equals(method)) {
+        return qualifiedName;
+      } else if ("name".equals(method) || "typeName".equals(method) || "simpleTypeName".equals(method)) {
+        return name;
+      } else if ("containingPackage".equals(method)) {
+        return containingPackage;
+      } else if ("isPublic".equals(method) || "isClass".equals(method) || "isOrdinaryClass".equals(method)) {
+        return true;
+      } else if ("isInterface".equals(method) || "isPrimitive".equals(method)) {
+        return false;
+      } else if ("superclass".equals(method) || "superclassType".equals(method)) {
+        return superclassDoc;
+      } else if ("interfaces".equals(method)) {
+        return new ClassDoc[0];
+      } else if ("methods".equals(method)) {
+        return methods.clone();
+      } else if ("inlineTags".equals(method)) {
+        return inlineTags.clone();
+      } else if ("tags".equals(method)) {
+        return filterTags(tags, args);
+      } else if ("commentText".equals(method) || "dimension".equals(method)) {
+        return "";
+      } else if ("asClassDoc".equals(method)) {
+        return proxy;
+      } else if ("asParameterizedType".equals(method) || "asWildcardType".equals(method) || "asTypeVariable".equals(
+          method) || "asAnnotatedType".equals(method) || "asAnnotationTypeDoc".equals(method)) {
+        return null;
+      }
+      return this;
+    }
+  }
+
+  /**
+   * A method, i.e. a setter or a getter.
+   */
+  private static final class MethodElement extends Element {
+
+    private final ClassDoc    containingClass;
+    private final String      name;
+    private final Parameter[] parameters;
+    private final Tag[]       inlineTags;
+    private final MethodDoc   overridden;
+    private final Tag[]       tags;
+
+    private MethodElement(ClassDoc containingClass, String name, Type parameterType, Tag[] inlineTags,
+                          MethodDoc overridden, Tag[] tags) {
+      this.containingClass = containingClass;
+      this.name = name;
+      if (parameterType != null) {
+        this.parameters = new Parameter[] {(Parameter) new ParameterElement(parameterType).proxy(Parameter.class)};
+      } else {
+        this.parameters = new Parameter[0];
+      }
+      this.inlineTags = inlineTags;
+      this.overridden = overridden;
+      this.tags = tags != null ? tags : new Tag[0];
+    }
+
+    private MethodDoc proxy() {
+      return (MethodDoc) proxy(MethodDoc.class);
+    }
+
+    private String signature() {
+      return parameters.length > 0 ? "(" + parameters[0].type() + ")" : "()";
+    }
+
+    @Override
+    Object answer(Object proxy, String method, Object[] args) {
+      if ("name".equals(method)) {
+        return name;
+      } else if ("qualifiedName".equals(method)) {
+        return containingClass.qualifiedName() + "." + name;
+      } else if ("signature".equals(method) || "flatSignature".equals(method)) {
+        return signature();
+      } else if ("toString".equals(method)) {
+        return containingClass.qualifiedName() + "." + name + signature();
+      } else if ("isPublic".equals(method)) {
+        return true;
+      } else if ("isStatic".equals(method)) {
+        return false;
+      } else if ("parameters".equals(method)) {
+        return parameters.clone();
+      } else if ("inlineTags".equals(method)) {
+        return inlineTags.clone();
+      } else if ("tags".equals(method)) {
+        return filterTags(tags, args);
+      } else if ("commentText".equals(method)) {
+        return "";
+      } else if ("overriddenMethod".equals(method)) {
+        return overridden;
+      } else if ("containingClass".equals(method)) {
+        return containingClass;
+      }
+      return this;
+    }
+  }
+
+  /**
+   * A setter parameter.
+   */
+  private static final class ParameterElement extends Element {
+
+    private final Type type;
+
+    private ParameterElement(Type type) {
+      this.type = type;
+    }
+
+    @Override
+    Object answer(Object proxy, String method, Object[] args) {
+      if ("type".equals(method)) {
+        return type;
+      } else if ("name".equals(method)) {
+        return "value";
+      } else if ("typeName".equals(method)) {
+        return type.qualifiedTypeName();
+      } else if ("toString".equals(method)) {
+        return type + " value";
+      }
+      return this;
+    }
+  }
+
+  /**
+   * A block or inline tag.
+   */
+  private static final class TagElement extends Element {
+
+    private final String   name;
+    private final String   text;
+    private final ClassDoc referencedClass;
+
+    private TagElement(String name, String text) {
+      this.name = name;
+      this.text = text;
+      this.referencedClass = null;
+    }
+
+    private TagElement(String name, ClassDoc referencedClass) {
+      this.name = name;
+      this.text = referencedClass.qualifiedName();
+      this.referencedClass = referencedClass;
+    }
+
+    private Tag proxy() {
+      return (Tag) proxy(referencedClass != null ? SeeTag.class : Tag.class);
+    }
+
+    @Override
+    Object answer(Object proxy, String method, Object[] args) {
+      if ("name".equals(method)) {
+        return name;
+      } else if ("kind".equals(method)) {
+        return referencedClass != null ? "@see" : name;
+      } else if ("text".equals(method)) {
+        return text;
+      } else if ("toString".equals(method)) {
+        return name + ":" + text;
+      } else if ("label".equals(method)) {
+        return "";
+      } else if ("referencedClass".equals(method)) {
+        return referencedClass;
+      } else if ("referencedClassName".equals(method)) {
+        return referencedClass != null ? referencedClass.qualifiedName() : null;
+      } else if ("referencedMember".equals(method) || "referencedMemberName".equals(method) || "referencedPackage"
+          .equals(method)) {
+        return null;
+      }
+      return this;
+    }
+  }
+}
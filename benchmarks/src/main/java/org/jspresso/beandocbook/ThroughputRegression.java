@@ -0,0 +1,286 @@
+/*
+ * Copyright (c) 2005-2016 Vincent Vandenschrick. All rights reserved.
+ *
+ *  This file is part of the Jspresso framework.
+ *
+ *  Jspresso is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Jspresso is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with Jspresso.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jspresso.beandocbook;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import com.sun.javadoc.RootDoc;
+
+/**
+ * End-to-end throughput regression check, running the DocBook and Markdown
+ * doclets over synthetic models of growing size and recording, for each
+ * doclet and size, the wall time of the run, the peak heap and the number of
+ * bytes written. The results are compared to a baseline recorded on the same
+ * machine, and the check fails when a measure exceeds its baseline by more
+ * than the threshold. Usage :
+ * <pre>
+ * java org.jspresso.beandocbook.ThroughputRegression [-sizes 1000,10000,100000] [-doclets docbook,markdown]
+ *   [-runs 3] [-baseline &lt;file&gt;] [-record] [-threshold 0.25] [generation options] [-- doclet options]
+ * </pre>
+ * where the generation options are <code>-maxDepth</code>,
+ * <code>-fanOut</code>, <code>-properties</code>, <code>-commentWords</code>,
+ * <code>-htmlDensity</code>, <code>-internalRatio</code>,
+ * <code>-deprecatedRatio</code> and <code>-seed</code>. The best wall time of
+ * the runs is kept. The results are written to the baseline file instead of
+ * being checked against it when the file does not exist yet or with
+ * <code>-record</code>.
+ *
+ * @version $LastChangedRevision: 3701 $
+ * @author Vincent Vandenschrick
+ */
+public final class ThroughputRegression {
+
+  private static final String WALL_TIME     = "wallTimeMs";
+  private static final String PEAK_HEAP     = "peakHeapBytes";
+  private static final String BYTES_WRITTEN = "bytesWritten";
+
+  private ThroughputRegression() {
+    // Entry point only.
+  }
+
+  /**
+   * Runs the regression check.
+   *
+   * @param args
+   *          the command line arguments.
+   * @throws Exception
+   *           whenever the check cannot run.
+   */
+  public static void main(String[] args) throws Exception {
+    int[] sizes = {1000, 10000, 100000};
+    String[] doclets = {"docbook", "markdown"};
+    int runs = 3;
+    File baseline = null;
+    boolean record = false;
+    double threshold = 0.25;
+    StubDocs generator = new StubDocs();
+    List<String> docletOptions = new ArrayList<String>();
+    for (int i = 0; i < args.length; i++) {
+      String arg = args[i];
+      if ("--".equals(arg)) {
+        docletOptions.addAll(Arrays.asList(args).subList(i + 1, args.length));
+        break;
+      } else if ("-record".equals(arg)) {
+        record = true;
+        continue;
+      } else if (i + 1 >= args.length) {
+        usage("Missing value of " + arg);
+        return;
+      }
+      String value = args[++i];
+      if ("-sizes".equals(arg)) {
+        String[] sizeValues = value.split(",");
+        sizes = new int[sizeValues.length];
+        for (int j = 0; j < sizes.length; j++) {
+          sizes[j] = Integer.parseInt(sizeValues[j].trim());
+        }
+      } else if ("-doclets".equals(arg)) {
+        doclets = value.split(",");
+      } else if ("-runs".equals(arg)) {
+        runs = Math.max(1, Integer.parseInt(value));
+      } else if ("-baseline".equals(arg)) {
+        baseline = new File(value);
+      } else if ("-threshold".equals(arg)) {
+        threshold = Double.parseDouble(value);
+      } else if ("-maxDepth".equals(arg)) {
+        generator.setMaxDepth(Integer.parseInt(value));
+      } else if ("-fanOut".equals(arg)) {
+        generator.setFanOut(Integer.parseInt(value));
+      } else if ("-properties".equals(arg)) {
+        generator.setPropertyCount(Integer.parseInt(value));
+      } else if ("-commentWords".equals(arg)) {
+        generator.setCommentWords(Integer.parseInt(value));
+      } else if ("-htmlDensity".equals(arg)) {
+        generator.setHtmlDensity(Double.parseDouble(value));
+      } else if ("-internalRatio".equals(arg)) {
+        generator.setInternalRatio(Double.parseDouble(value));
+      } else if ("-deprecatedRatio".equals(arg)) {
+        generator.setDeprecatedRatio(Double.parseDouble(value));
+      } else if ("-seed".equals(arg)) {
+        generator.setSeed(Long.parseLong(value));
+      } else {
+        usage("Invalid option " + arg);
+        return;
+      }
+    }
+    if (record && baseline == null) {
+      usage("-record requires -baseline");
+      return;
+    }
+    Properties results = new Properties();
+    for (int size : sizes) {
+      for (String doclet : doclets) {
+        measure(generator, size, doclet, runs, docletOptions, results);
+      }
+    }
+    if (record || (baseline != null && !baseline.exists())) {
+      writeResults(results, baseline);
+      System.out.println("Recorded the baseline in " + baseline);
+    } else if (baseline != null) {
+      if (!check(results, readResults(baseline), threshold)) {
+        System.exit(1);
+      }
+    }
+  }
+
+  private static void measure(StubDocs generator, int size, String doclet, int runs, List<String> docletOptions,
+                              Properties results) throws IOException {
+    String key = doclet + "." + size + ".";
+    long bestWallTime = Long.MAX_VALUE;
+    long peakHeap = 0;
+    long bytesWritten = 0;
+    generator.setClassCount(size);
+    for (int run = 0; run < runs; run++) {
+      File outputDir = Files.createTempDirectory("bean-doc-regression").toFile();
+      try {
+        RootDoc root = generator.createRoot(StubDocs.createOptions(outputDir.getPath(), docletOptions.toArray(
+            new String[docletOptions.size()])));
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = new ArrayList<MemoryPoolMXBean>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+          if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+            pool.resetPeakUsage();
+            heapPools.add(pool);
+          }
+        }
+        long start = System.nanoTime();
+        if (!start(doclet, root)) {
+          throw new IOException(doclet + " failed on " + size + " classes");
+        }
+        long wallTime = (System.nanoTime() - start) / 1000000;
+        long heap = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+          heap += pool.getPeakUsage().getUsed();
+        }
+        bestWallTime = Math.min(bestWallTime, wallTime);
+        peakHeap = Math.max(peakHeap, heap);
+        bytesWritten = sizeOf(outputDir);
+      } finally {
+        delete(outputDir);
+      }
+    }
+    results.setProperty(key + WALL_TIME, Long.toString(bestWallTime));
+    results.setProperty(key + PEAK_HEAP, Long.toString(peakHeap));
+    results.setProperty(key + BYTES_WRITTEN, Long.toString(bytesWritten));
+    System.out.println(String.format("%-10s %8d classes : %8d ms, %6d MB peak heap, %10d bytes", doclet, size,
+        bestWallTime, peakHeap / (1024 * 1024), bytesWritten));
+  }
+
+  private static boolean start(String doclet, RootDoc root) {
+    if ("docbook".equals(doclet)) {
+      return BeanDocbookDoclet.start(root);
+    } else if ("markdown".equals(doclet)) {
+      return BeanMarkdownDoclet.start(root);
+    } else if ("multiformat".equals(doclet)) {
+      return BeanMultiFormatDoclet.start(root);
+    }
+    throw new IllegalArgumentException("Unknown doclet " + doclet);
+  }
+
+  private static boolean check(Properties results, Properties baseline, double threshold) {
+    boolean passed = true;
+    for (String key : results.stringPropertyNames()) {
+      String baselineValue = baseline.getProperty(key);
+      if (baselineValue == null) {
+        System.out.println("No baseline for " + key);
+        continue;
+      }
+      long expected = Long.parseLong(baselineValue);
+      long actual = Long.parseLong(results.getProperty(key));
+      if (actual > expected * (1 + threshold)) {
+        System.out.println(String.format("REGRESSION %s : %d, baseline %d (+%.0f%%)", key, actual, expected,
+            (actual - expected) * 100.0 / Math.max(1, expected)));
+        passed = false;
+      }
+    }
+    System.out.println(passed ? "No regression beyond " + Math.round(threshold * 100) + "%" : "Regression detected");
+    return passed;
+  }
+
+  private static Properties readResults(File file) throws IOException {
+    Properties results = new Properties();
+    InputStream in = new FileInputStream(file);
+    try {
+      results.load(in);
+    } finally {
+      in.close();
+    }
+    return results;
+  }
+
+  private static void writeResults(Properties results, File file) throws IOException {
+    OutputStream out = new FileOutputStream(file);
+    try {
+      results.store(out, "Bean doclet throughput baseline");
+    } finally {
+      out.close();
+    }
+  }
+
+  private static long sizeOf(File dir) {
+    long size = 0;
+    File[] files = dir.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        // Hidden directories hold caches, not outputs.
+        if (file.isDirectory() && !file.getName().startsWith(".")) {
+          size += sizeOf(file);
+        } else if (file.isFile()) {
+          size += file.length();
+        }
+      }
+    }
+    return size;
+  }
+
+  private static void delete(File file) {
+    File[] files = file.listFiles();
+    if (files != null) {
+      for (File child : files) {
+        delete(child);
+      }
+    }
+    if (!file.delete()) {
+      file.deleteOnExit();
+    }
+  }
+
+  private static void usage(String message) {
+    System.err.println(message);
+    System.err.println("Usage : " + ThroughputRegression.class.getName()
+        + " [-sizes <counts>] [-doclets <doclets>] [-runs <count>] [-baseline <file>] [-record]"
+        + " [-threshold <ratio>] [-maxDepth <depth>] [-fanOut <count>] [-properties <count>]"
+        + " [-commentWords <count>] [-htmlDensity <ratio>] [-internalRatio <ratio>] [-deprecatedRatio <ratio>]"
+        + " [-seed <seed>] [-- <doclet options>]");
+    System.exit(2);
+  }
+}
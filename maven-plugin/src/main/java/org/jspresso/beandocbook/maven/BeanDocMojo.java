@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2005-2016 Vincent Vandenschrick. All rights reserved.
+ *
+ *  This file is part of the Jspresso framework.
+ *
+ *  Jspresso is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Jspresso is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with Jspresso.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jspresso.beandocbook.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URISyntaxException;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+
+import org.jspresso.beandocbook.BeanDocConfigSet;
+import org.jspresso.beandocbook.BeanDocGenerator;
+
+/**
+ * Generates the bean documentation of the project sources. The generation
+ * is skipped altogether when its inputs did not change since the last one,
+ * i.e. the contents of the sources, the class path, the doclet version and
+ * the options, and the previous outputs are still there.
+ *
+ * @version $LastChangedRevision: 3701 $
+ * @author Vincent Vandenschrick
+ */
+@Mojo(name = "generate", defaultPhase = LifecyclePhase.PROCESS_CLASSES,
+    requiresDependencyResolution = ResolutionScope.COMPILE, threadSafe = true)
+public class BeanDocMojo extends AbstractMojo {
+
+  private static final String STATE_FILE = ".bean-docbook-fingerprint";
+
+  @Parameter(defaultValue = "${project}", readonly = true, required = true)
+  private MavenProject project;
+
+  /**
+   * The source directories, the compile source roots of the project by
+   * default.
+   */
+  @Parameter
+  private List<File> sourceDirectories;
+
+  /**
+   * The documented packages, along with their subpackages.
+   */
+  @Parameter(required = true)
+  private List<String> subpackages;
+
+  /**
+   * The config sets, one document being generated per config set.
+   */
+  @Parameter(required = true)
+  private List<ConfigSet> configSets;
+
+  /**
+   * The directory where the documents are written.
+   */
+  @Parameter(defaultValue = "${project.build.directory}/bean-docbook", required = true)
+  private File outputDirectory;
+
+  /**
+   * The base URL of the published javadoc.
+   */
+  @Parameter
+  private String apidocUrl;
+
+  /**
+   * The doclet, <code>docbook</code>, <code>markdown</code>,
+   * <code>multiformat</code> or a doclet class name.
+   */
+  @Parameter(defaultValue = "docbook")
+  private String doclet;
+
+  /**
+   * The formats generated by the <code>multiformat</code> doclet.
+   */
+  @Parameter
+  private List<String> formats;
+
+  /**
+   * The number of config sets generated concurrently, 0 for one per core.
+   */
+  @Parameter(defaultValue = "1")
+  private int workers;
+
+  /**
+   * The number of class sections of a document rendered concurrently, 0 for
+   * one per core.
+   */
+  @Parameter(defaultValue = "1")
+  private int sectionWorkers;
+
+  /**
+   * Whether only the part of the class hierarchy reachable from the root
+   * classes is materialized.
+   */
+  @Parameter(defaultValue = "false")
+  private boolean lazyHierarchy;
+
+  /**
+   * Whether the rendered class sections are cached across generations.
+   */
+  @Parameter(defaultValue = "false")
+  private boolean fragmentCache;
+
+  /**
+   * Whether each class section is written to its own file, the documents
+   * only referencing them.
+   */
+  @Parameter(defaultValue = "false")
+  private boolean chunkedOutput;
+
+  /**
+   * The stylesheet the DocBook structure is streamed through.
+   */
+  @Parameter
+  private File stylesheet;
+
+  /**
+   * The encoding of the sources.
+   */
+  @Parameter(defaultValue = "${project.build.sourceEncoding}")
+  private String encoding;
+
+  /**
+   * Additional javadoc or doclet options.
+   */
+  @Parameter
+  private List<String> additionalOptions;
+
+  /**
+   * Skips the generation.
+   */
+  @Parameter(property = "beandocbook.skip", defaultValue = "false")
+  private boolean skip;
+
+  /**
+   * Generates even if the inputs did not change.
+   */
+  @Parameter(property = "beandocbook.force", defaultValue = "false")
+  private boolean force;
+
+  /**
+   * Generates the documentation unless it is up-to-date.
+   *
+   * @throws MojoExecutionException
+   *           if the generation fails.
+   */
+  @Override
+  public void execute() throws MojoExecutionException {
+    if (skip) {
+      getLog().info("Skipping the bean documentation");
+      return;
+    }
+    try {
+      BeanDocGenerator generator = createGenerator();
+      InputFingerprint fingerprint = computeFingerprint(generator);
+      File stateFile = new File(outputDirectory, STATE_FILE);
+      if (!force && fingerprint.isUpToDate(stateFile)) {
+        getLog().info("The bean documentation is up-to-date");
+        return;
+      }
+      // A failed generation must not be taken for an up-to-date one.
+      stateFile.delete();
+      outputDirectory.mkdirs();
+      StringWriter out = new StringWriter();
+      generator.setOut(out);
+      boolean success = generator.generate();
+      for (String line : out.toString().split("\\r?\\n")) {
+        if (line.length() > 0) {
+          getLog().info(line);
+        }
+      }
+      if (!success) {
+        throw new MojoExecutionException("The bean documentation generation failed");
+      }
+      fingerprint.save(stateFile);
+    } catch (IOException ex) {
+      throw new MojoExecutionException("Could not generate the bean documentation", ex);
+    } catch (NoSuchAlgorithmException ex) {
+      throw new MojoExecutionException("Could not fingerprint the bean documentation inputs", ex);
+    } catch (ClassNotFoundException ex) {
+      throw new MojoExecutionException("Unknown doclet " + doclet, ex);
+    } catch (DependencyResolutionRequiredException ex) {
+      throw new MojoExecutionException("Could not resolve the class path", ex);
+    }
+  }
+
+  private BeanDocGenerator createGenerator() throws ClassNotFoundException, DependencyResolutionRequiredException {
+    BeanDocGenerator generator = new BeanDocGenerator();
+    generator.setDocletClass(BeanDocGenerator.getDocletClass(doclet));
+    generator.setSourcePath(getSourceDirectories());
+    List<File> classPath = new ArrayList<File>();
+    for (String classPathElement : project.getCompileClasspathElements()) {
+      classPath.add(new File(classPathElement));
+    }
+    generator.setClassPath(classPath);
+    generator.setSubpackages(subpackages);
+    generator.setEncoding(encoding);
+    generator.setOutputDir(outputDirectory);
+    generator.setApidocUrl(apidocUrl);
+    generator.setConfigSets(new ArrayList<BeanDocConfigSet>(configSets));
+    if (formats != null) {
+      generator.setFormats(formats);
+    }
+    generator.setWorkers(workers);
+    generator.setSectionWorkers(sectionWorkers);
+    generator.setLazyHierarchy(lazyHierarchy);
+    generator.setFragmentCache(fragmentCache);
+    generator.setChunkedOutput(chunkedOutput);
+    generator.setStylesheet(stylesheet);
+    if (additionalOptions != null) {
+      generator.setAdditionalOptions(additionalOptions);
+    }
+    return generator;
+  }
+
+  private List<File> getSourceDirectories() {
+    if (sourceDirectories != null && !sourceDirectories.isEmpty()) {
+      return sourceDirectories;
+    }
+    List<File> compileSourceRoots = new ArrayList<File>();
+    for (String compileSourceRoot : project.getCompileSourceRoots()) {
+      compileSourceRoots.add(new File(compileSourceRoot));
+    }
+    return compileSourceRoots;
+  }
+
+  private InputFingerprint computeFingerprint(BeanDocGenerator generator)
+      throws IOException, NoSuchAlgorithmException, DependencyResolutionRequiredException {
+    InputFingerprint fingerprint = new InputFingerprint();
+    fingerprint.add(doclet);
+    fingerprint.add(String.valueOf(subpackages));
+    fingerprint.add(encoding);
+    for (String option : generator.getDocletOptions()) {
+      fingerprint.add(option);
+    }
+    // The doclet version, a snapshot being rebuilt under the same version.
+    try {
+      fingerprint.addContents(new File(BeanDocGenerator.class.getProtectionDomain().getCodeSource().getLocation()
+                                                              .toURI()), ".class");
+    } catch (URISyntaxException ex) {
+      fingerprint.add(BeanDocGenerator.class.getPackage().getImplementationVersion());
+    }
+    if (stylesheet != null) {
+      fingerprint.addContents(stylesheet, null);
+    }
+    for (File sourceDirectory : getSourceDirectories()) {
+      fingerprint.addContents(sourceDirectory, ".java");
+    }
+    for (String classPathElement : project.getCompileClasspathElements()) {
+      fingerprint.addStamps(new File(classPathElement));
+    }
+    return fingerprint;
+  }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2005-2016 Vincent Vandenschrick. All rights reserved.
+ *
+ *  This file is part of the Jspresso framework.
+ *
+ *  Jspresso is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Jspresso is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with Jspresso.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jspresso.beandocbook.maven;
+
+import org.jspresso.beandocbook.BeanDocConfigSet;
+
+/**
+ * A config set of the plugin configuration. It lives in the mojo package so
+ * that Maven maps the <code>&lt;configSet&gt;</code> elements to it :
+ * <pre>
+ * &lt;configSet&gt;
+ *   &lt;name&gt;views&lt;/name&gt;
+ *   &lt;rootClassName&gt;org.jspresso.framework.view.descriptor.IViewDescriptor&lt;/rootClassName&gt;
+ *   &lt;maxDepth&gt;3&lt;/maxDepth&gt;
+ *   &lt;excludedSubtrees&gt;
+ *     &lt;excludedSubtree&gt;**.basic.*&lt;/excludedSubtree&gt;
+ *   &lt;/excludedSubtrees&gt;
+ *   &lt;includedPackages&gt;
+ *     &lt;includedPackage&gt;org.jspresso.framework.view&lt;/includedPackage&gt;
+ *   &lt;/includedPackages&gt;
+ * &lt;/configSet&gt;
+ * </pre>
+ *
+ * @version $LastChangedRevision: 3701 $
+ * @author Vincent Vandenschrick
+ */
+public class ConfigSet extends BeanDocConfigSet {
+  // Only maps the configuration elements.
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2005-2016 Vincent Vandenschrick. All rights reserved.
+ *
+ *  This file is part of the Jspresso framework.
+ *
+ *  Jspresso is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Jspresso is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with Jspresso.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jspresso.beandocbook.maven;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Fingerprint of the inputs of a generation. Sources are digested by
+ * content, so that touching or checking them out again does not invalidate
+ * the fingerprint, while class path entries, much larger, are digested by
+ * size and modification time. The fingerprint is saved along with the list
+ * of generated outputs, and is only up-to-date as long as these outputs
+ * still exist.
+ *
+ * @version $LastChangedRevision: 3701 $
+ * @author Vincent Vandenschrick
+ */
+public class InputFingerprint {
+
+  private static final String  DIGEST      = "SHA-1";
+  private static final String  FINGERPRINT = "fingerprint";
+  private static final String  OUTPUTS     = "outputs";
+  private static final Charset UTF_8       = Charset.forName("UTF-8");
+
+  private final MessageDigest digest;
+  private String              value;
+
+  /**
+   * Constructs a new <code>InputFingerprint</code> instance.
+   *
+   * @throws NoSuchAlgorithmException
+   *           if the digest algorithm is not supported.
+   */
+  public InputFingerprint() throws NoSuchAlgorithmException {
+    digest = MessageDigest.getInstance(DIGEST);
+  }
+
+  /**
+   * Adds a value, e.g. an option.
+   *
+   * @param input
+   *          the value.
+   */
+  public void add(String input) {
+    digest.update(String.valueOf(input).getBytes(UTF_8));
+    digest.update((byte) 0);
+  }
+
+  /**
+   * Adds the contents of a file or of the files of a directory tree.
+   *
+   * @param path
+   *          the file or directory.
+   * @param extension
+   *          the extension of the files to add in a directory tree, or null
+   *          for all of them.
+   * @throws IOException
+   *           whenever an I/O exception occurs.
+   */
+  public void addContents(File path, String extension) throws IOException {
+    if (path.isDirectory()) {
+      for (File child : listSorted(path)) {
+        if (child.isDirectory() || extension == null || child.getName().endsWith(extension)) {
+          addContents(child, extension);
+        }
+      }
+    } else if (path.isFile()) {
+      add(path.getPath());
+      byte[] buffer = new byte[8192];
+      InputStream in = new FileInputStream(path);
+      try {
+        int count;
+        while ((count = in.read(buffer)) >= 0) {
+          digest.update(buffer, 0, count);
+        }
+      } finally {
+        in.close();
+      }
+    } else {
+      add(path.getPath() + " missing");
+    }
+  }
+
+  /**
+   * Adds the size and modification time of a file or of the files of a
+   * directory tree.
+   *
+   * @param path
+   *          the file or directory.
+   */
+  public void addStamps(File path) {
+    if (path.isDirectory()) {
+      for (File child : listSorted(path)) {
+        addStamps(child);
+      }
+    } else {
+      add(path.getPath() + "|" + path.length() + "|" + path.lastModified());
+    }
+  }
+
+  /**
+   * Gets the fingerprint value, ending the computation.
+   *
+   * @return the hexadecimal fingerprint.
+   */
+  public String getValue() {
+    if (value == null) {
+      StringBuilder buff = new StringBuilder();
+      for (byte b : digest.digest()) {
+        buff.append(String.format("%02x", b & 0xFF));
+      }
+      value = buff.toString();
+    }
+    return value;
+  }
+
+  /**
+   * Checks this fingerprint against a saved one.
+   *
+   * @param stateFile
+   *          the file the fingerprint was saved to.
+   * @return true if the saved fingerprint is the same and all of its
+   * outputs still exist.
+   * @throws IOException
+   *           whenever an I/O exception occurs.
+   */
+  public boolean isUpToDate(File stateFile) throws IOException {
+    if (!stateFile.isFile()) {
+      return false;
+    }
+    Properties state = new Properties();
+    InputStream in = new FileInputStream(stateFile);
+    try {
+      state.load(in);
+    } finally {
+      in.close();
+    }
+    if (!getValue().equals(state.getProperty(FINGERPRINT))) {
+      return false;
+    }
+    String outputs = state.getProperty(OUTPUTS, "");
+    for (String output : outputs.split(File.pathSeparator)) {
+      if (output.length() > 0 && !new File(stateFile.getParentFile(), output).isFile()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Saves this fingerprint along with the outputs found next to the state
+   * file, including the chunk files of chunked outputs.
+   *
+   * @param stateFile
+   *          the file to save the fingerprint to.
+   * @throws IOException
+   *           whenever an I/O exception occurs.
+   */
+  public void save(File stateFile) throws IOException {
+    StringBuilder outputs = new StringBuilder();
+    appendOutputs(stateFile.getParentFile(), "", outputs);
+    Properties state = new Properties();
+    state.setProperty(FINGERPRINT, getValue());
+    state.setProperty(OUTPUTS, outputs.toString());
+    OutputStream out = new FileOutputStream(stateFile);
+    try {
+      state.store(out, "Bean doclet inputs fingerprint");
+    } finally {
+      out.close();
+    }
+  }
+
+  private static void appendOutputs(File dir, String prefix, StringBuilder outputs) {
+    for (File output : listSorted(dir)) {
+      if (output.getName().startsWith(".")) {
+        continue;
+      }
+      if (output.isDirectory()) {
+        appendOutputs(output, prefix + output.getName() + "/", outputs);
+      } else if (output.isFile()) {
+        if (outputs.length() > 0) {
+          outputs.append(File.pathSeparator);
+        }
+        outputs.append(prefix).append(output.getName());
+      }
+    }
+  }
+
+  private static List<File> listSorted(File dir) {
+    File[] children = dir.listFiles();
+    if (children == null) {
+      return new ArrayList<File>();
+    }
+    Arrays.sort(children);
+    return Arrays.asList(children);
+  }
+}
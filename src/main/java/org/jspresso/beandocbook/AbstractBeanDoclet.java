@@ -18,21 +18,37 @@
  */
 package org.jspresso.beandocbook;
 
-import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
+import java.io.OutputStream;
+import java.io.InputStream;
 import java.io.Writer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collection;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.sun.javadoc.ClassDoc;
 import com.sun.javadoc.LanguageVersion;
@@ -40,21 +56,64 @@ import com.sun.javadoc.MethodDoc;
 import com.sun.javadoc.RootDoc;
 
 /**
- * A simple doclet to generate documentation from javadoc information.
+ * A simple doclet to generate documentation from javadoc information. It
+ * drives the traversal of the config set hierarchies and their outputs, the
+ * class sections being rendered by the format doclets, see
+ * {@link AbstractBeanFormatDoclet}.
  *
  * @author Vincent Vandenschrick
  * @version $LastChangedRevision: 3701 $
  */
 public abstract class AbstractBeanDoclet {
 
+  static final String                 OUTPUT_DIGEST     = "SHA-1";
+  static final int                    WRITE_BUFFER_SIZE = 16 * 1024;
+  private static final DocletRecorder RECORDER          = DocletRecorder.getInstance();
+
   private static ThreadLocal<AbstractBeanDoclet> threadInstance = new ThreadLocal<AbstractBeanDoclet>();
   private String             rootClassName;
-  private Collection<String> excludedSubtrees;
-  private Collection<String> includedPackages;
+  private NameMatcher        excludedSubtrees;
+  private NameMatcher        includedPackages;
   private int                maxDepth;
   private String             apidocUrl;
   private String             outputDir;
   private int                treeDepth;
+  private int                workers = 1;
+  private int                sectionWorkers = 1;
+  private boolean            lazyHierarchy;
+  private String             snapshotFile;
+  private String             perfReportFile;
+  private PerformanceReport  performanceReport;
+  private PerformanceReport.ConfigSetStats configSetStats;
+  private String             stylesheet;
+  private String             stylesheetOutputExtension = ".fo";
+  private boolean            asyncOutput;
+  private int                outputBufferSize = 64 * 1024;
+  private int                outputQueueSize = 4;
+  private boolean            fragmentCacheEnabled;
+  private long               fragmentCacheMaxSize = 32 * 1024 * 1024;
+  private FragmentCache      fragmentCache;
+  private Set<File>          fragmentCacheFiles;
+  private String             configSetKey;
+  private List<File>         changedOutputs;
+  private List<String>       failures;
+  private boolean            chunkedOutput;
+  private List<File>         changedChunks;
+  private List<Future<?>>    pendingChunks;
+  private Set<File>          writtenChunks;
+  private ExecutorService    sectionExecutor;
+  private ClassTreeIndex     classTreeIndex;
+  private InheritDocCache    inheritDocCache;
+  private TypeRenderer       typeRenderer;
+  private BitSet             documentedTrees;
+  private BitSet             documentedClasses;
+  private Map<String, String> resolvedLinks;
+  private String             formats;
+  private File               outputFile;
+  private File               tmpOutputFile;
+  private MessageDigest      outputDigest;
+  private OutputStream       outputStream;
+  private Utf8Writer         outputWriter;
   private Map<String, Map<String, String>> configSets = new HashMap<String, Map<String, String>>();
   /**
    * The Writer.
@@ -69,22 +128,27 @@ public abstract class AbstractBeanDoclet {
    */
   protected void setupConfigSet(Map<String, String> configSet) {
     rootClassName = configSet.get("rootClassName");
+    configSetKey = new TreeMap<String, String>(configSet).toString();
     if (configSet.containsKey("maxDepth")) {
       maxDepth = Integer.parseInt(configSet.get("maxDepth"));
     } else {
       maxDepth = -1;
     }
     if (configSet.containsKey("includedPackages")) {
-      includedPackages = new HashSet<String>(Arrays.asList(configSet.get("includedPackages").split(":")));
+      includedPackages = NameMatcher.compile(configSet.get("includedPackages"), false);
     } else {
       includedPackages = null;
     }
     if (configSet.containsKey("excludedSubtrees")) {
-      excludedSubtrees = new HashSet<String>(Arrays.asList(configSet.get("excludedSubtrees").split(":")));
+      excludedSubtrees = NameMatcher.compile(configSet.get("excludedSubtrees"), true);
     } else {
-      excludedSubtrees = new HashSet<String>();
+      excludedSubtrees = null;
     }
     treeDepth = 0;
+    documentedTrees = new BitSet();
+    documentedClasses = new BitSet();
+    resolvedLinks = new ConcurrentHashMap<String, String>();
+    fragmentCache = null;
     writer = null;
   }
 
@@ -93,49 +157,633 @@ public abstract class AbstractBeanDoclet {
    *
    * @param root
    *     the root doc.
-   * @return true if successful.
+   * @return true if successful, false if a config set could not be
+   * generated.
    */
   protected static boolean start(RootDoc root) {
     AbstractBeanDoclet doclet = threadInstance.get();
-    doclet.readOptions(root.options());
-    for (Map<String, String> configSet : doclet.configSets.values()) {
-      doclet.setupConfigSet(configSet);
-      Map<String, ClassTree> classTrees = new LinkedHashMap<String, ClassTree>();
-      ClassTree rootClassTree = null;
-      ClassDoc[] classes = root.classes();
+    // Do not hold on the javadoc model once the run is over.
+    threadInstance.remove();
+    doclet.setup(root);
+    try {
+      generateConfigSets(doclet);
+      if (doclet.fragmentCacheEnabled) {
+        doclet.pruneFragmentCache();
+      }
+    } finally {
+      if (doclet.sectionExecutor != null) {
+        doclet.sectionExecutor.shutdown();
+      }
+    }
+    if (doclet.performanceReport != null) {
+      File reportFile = doclet.getPerformanceReportFile();
       try {
-        File f = new File(doclet.outputDir, doclet.rootClassName.substring(doclet.rootClassName.lastIndexOf(".") + 1)
-            + doclet.getOutputExtension());
-        f.getParentFile().mkdirs();
-        doclet.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(f), "UTF-8"));
-        doclet.writeHeader();
-        for (ClassDoc classDoc : classes) {
-          if (classDoc.isPublic() && classDoc.isClass()) {
-            ClassTree classTree = new ClassTree(classDoc);
-            if (doclet.rootClassName.equals(classDoc.qualifiedName())) {
-              rootClassTree = classTree;
-            }
-            classTrees.put(classDoc.qualifiedTypeName(), classTree);
+        doclet.performanceReport.write(reportFile);
+      } catch (IOException ex) {
+        root.printError("Could not write performance report " + reportFile + " : " + ex.getMessage());
+      }
+    }
+    for (File changedOutput : doclet.changedOutputs) {
+      root.printNotice("Updated " + changedOutput);
+    }
+    root.printNotice(doclet.changedOutputs.size() + " of " + doclet.configSets.size() * doclet.getOutputExtensions()
+                                                                                        .size() + " outputs changed");
+    if (doclet.chunkedOutput) {
+      root.printNotice(doclet.changedChunks.size() + " class chunks changed");
+    }
+    for (String failure : doclet.failures) {
+      root.printError(failure);
+    }
+    return doclet.failures.isEmpty();
+  }
+
+  /**
+   * Sets up the run-wide state out of a root doc, i.e. the options, the class
+   * hierarchy index and the shared caches, without generating anything.
+   *
+   * @param root
+   *     the root doc.
+   */
+  void setup(RootDoc root) {
+    long startNanos = System.nanoTime();
+    Object optionsEvent = RECORDER.beginOptions();
+    String[][] options = root.options();
+    readOptions(root, options);
+    if (optionsEvent != null) {
+      RECORDER.endOptions(optionsEvent, options.length, configSets.size());
+    }
+    if (perfReportFile != null) {
+      long optionsNanos = System.nanoTime() - startNanos;
+      performanceReport = new PerformanceReport(startNanos, configSets);
+      performanceReport.setOptionsTime(optionsNanos);
+    }
+    long hierarchyNanos = System.nanoTime();
+    Object hierarchyEvent = RECORDER.beginHierarchy();
+    classTreeIndex = new ClassTreeIndex(root.classes(), lazyHierarchy);
+    boolean preloaded = workers > 1 || sectionWorkers > 1;
+    if (preloaded) {
+      // The javadoc model lazily computes most of its data, make it safe for concurrent reads.
+      classTreeIndex.preload();
+    }
+    if (hierarchyEvent != null) {
+      RECORDER.endHierarchy(hierarchyEvent, classTreeIndex.size(), lazyHierarchy, preloaded);
+    }
+    if (performanceReport != null) {
+      performanceReport.setHierarchyTime(System.nanoTime() - hierarchyNanos, classTreeIndex.size());
+    }
+    inheritDocCache = new InheritDocCache();
+    typeRenderer = new TypeRenderer();
+    if (snapshotFile != null) {
+      try {
+        BeanSnapshot.write(root.classes(), this, inheritDocCache, new File(snapshotFile));
+      } catch (IOException ex) {
+        root.printError("Could not write snapshot " + snapshotFile + " : " + ex.getMessage());
+      }
+    }
+    if (sectionWorkers > 1) {
+      sectionExecutor = Executors.newFixedThreadPool(sectionWorkers);
+    }
+    if (fragmentCacheEnabled) {
+      fragmentCacheFiles = Collections.synchronizedSet(new HashSet<File>());
+    }
+    changedOutputs = Collections.synchronizedList(new ArrayList<File>());
+    failures = Collections.synchronizedList(new ArrayList<String>());
+    changedChunks = Collections.synchronizedList(new ArrayList<File>());
+  }
+
+  /**
+   * Gets the fragment cache of the current output.
+   *
+   * @return the fragment cache or null if disabled
+   */
+  FragmentCache getFragmentCache() {
+    return fragmentCache;
+  }
+
+  /**
+   * Sets the fragment cache of the current output.
+   *
+   * @param fragmentCache
+   *     the fragment cache
+   */
+  void setFragmentCache(FragmentCache fragmentCache) {
+    this.fragmentCache = fragmentCache;
+  }
+
+  /**
+   * Gets the executor rendering class sections concurrently.
+   *
+   * @return the section executor or null if sections are rendered in place
+   */
+  ExecutorService getSectionExecutor() {
+    return sectionExecutor;
+  }
+
+  /**
+   * Gets the run-wide inherited comments cache.
+   *
+   * @return the inherited comments cache
+   */
+  InheritDocCache getInheritDocCache() {
+    return inheritDocCache;
+  }
+
+  /**
+   * Gets the run-wide type renderer.
+   *
+   * @return the type renderer
+   */
+  TypeRenderer getTypeRenderer() {
+    return typeRenderer;
+  }
+
+  /**
+   * Gets the base URL of the published javadoc.
+   *
+   * @return the javadoc base URL
+   */
+  String getApidocUrl() {
+    return apidocUrl;
+  }
+
+  /**
+   * Gets the links resolved for the current config set.
+   *
+   * @return the resolved links by key
+   */
+  Map<String, String> getResolvedLinks() {
+    return resolvedLinks;
+  }
+
+  /**
+   * Whether a class is documented in the output of the current config set.
+   *
+   * @param qualifiedName
+   *     the qualified class name
+   * @return true if the class is documented
+   */
+  boolean isDocumentedClass(String qualifiedName) {
+    int ordinal = classTreeIndex.getOrdinal(qualifiedName);
+    return ordinal >= 0 && documentedClasses.get(ordinal);
+  }
+
+  /**
+   * Gets the config sets read from the options.
+   *
+   * @return the config sets by name
+   */
+  Map<String, Map<String, String>> getConfigSets() {
+    return configSets;
+  }
+
+  private static void generateConfigSets(AbstractBeanDoclet doclet) {
+    if (doclet.workers > 1 && doclet.configSets.size() > 1) {
+      ExecutorService executor = Executors.newFixedThreadPool(Math.min(doclet.workers, doclet.configSets.size()));
+      try {
+        // Config sets sharing an output file are kept in sequence so that the last one still wins.
+        Map<File, List<Map<String, String>>> configSetsByFile = new LinkedHashMap<File, List<Map<String, String>>>();
+        for (Map<String, String> configSet : doclet.configSets.values()) {
+          File f = doclet.getOutputFile(configSet.get("rootClassName"));
+          List<Map<String, String>> fileConfigSets = configSetsByFile.get(f);
+          if (fileConfigSets == null) {
+            fileConfigSets = new ArrayList<Map<String, String>>();
+            configSetsByFile.put(f, fileConfigSets);
           }
+          fileConfigSets.add(configSet);
         }
-        if (rootClassTree != null) {
-          for (Map.Entry<String, ClassTree> entry : classTrees.entrySet()) {
-            ClassTree parent = classTrees.get(entry.getValue().getRoot().superclassType().qualifiedTypeName());
-            if (parent != null) {
-              parent.getSubclasses().add(entry.getValue());
+        List<Future<?>> results = new ArrayList<Future<?>>();
+        for (final List<Map<String, String>> fileConfigSets : configSetsByFile.values()) {
+          final AbstractBeanDoclet context = doclet.createRenderingContext();
+          results.add(executor.submit(new Runnable() {
+            @Override
+            public void run() {
+              for (Map<String, String> configSet : fileConfigSets) {
+                context.generateConfigSet(configSet);
+              }
             }
-          }
-          doclet.writeRootSection(rootClassTree);
+          }));
+        }
+        for (Future<?> result : results) {
+          result.get();
         }
-        doclet.writer.flush();
-        doclet.writer.close();
       } catch (Exception ex) {
         ex.printStackTrace();
+        doclet.failures.add("Could not generate the config sets : " + ex);
+      } finally {
+        executor.shutdown();
+      }
+    } else {
+      for (Map<String, String> configSet : doclet.configSets.values()) {
+        doclet.createRenderingContext().generateConfigSet(configSet);
+      }
+    }
+  }
+
+  /**
+   * Generates the output files of a config set.
+   *
+   * @param configSet
+   *     the config set
+   */
+  protected void generateConfigSet(Map<String, String> configSet) {
+    Object event = RECORDER.beginConfigSet();
+    long startNanos = System.nanoTime();
+    if (performanceReport != null) {
+      configSetStats = performanceReport.addConfigSet(configSet);
+    }
+    List<AbstractBeanDoclet> renderers = Collections.emptyList();
+    try {
+      ClassTree rootClassTree = prepareConfigSet(configSet);
+      long renderingNanos = System.nanoTime();
+      if (configSetStats != null) {
+        configSetStats.setHierarchyTime(renderingNanos - startNanos);
+      }
+      renderers = createRenderers();
+      for (AbstractBeanDoclet renderer : renderers) {
+        renderer.openOutput(rootClassTree != null);
+      }
+      if (rootClassTree != null) {
+        if (renderers.size() == 1 && renderers.get(0) == this) {
+          writeRootSection(rootClassTree);
+        } else {
+          for (AbstractBeanDoclet renderer : renderers) {
+            renderer.openRootSection(rootClassTree);
+          }
+          processClassTree(rootClassTree);
+          for (AbstractBeanDoclet renderer : renderers) {
+            renderer.closeRootSection(rootClassTree);
+          }
+        }
+      }
+      long bytesWritten = 0;
+      for (AbstractBeanDoclet renderer : renderers) {
+        bytesWritten += renderer.closeOutput(configSetStats);
+      }
+      if (configSetStats != null) {
+        configSetStats.setRenderingTime(System.nanoTime() - renderingNanos - configSetStats.getIoTime());
+      }
+      if (event != null) {
+        RECORDER.endConfigSet(event, rootClassName, documentedClasses.cardinality(), renderers.size(), bytesWritten);
+      }
+    } catch (Exception ex) {
+      ex.printStackTrace();
+      failures.add("Could not generate the " + configSet.get("rootClassName") + " hierarchy : " + ex);
+    } finally {
+      for (AbstractBeanDoclet renderer : renderers) {
+        renderer.discardOutput();
+      }
+    }
+  }
+
+  /**
+   * Sets up a config set and classifies its hierarchy.
+   *
+   * @param configSet
+   *     the config set
+   * @return the root class tree of the config set or null if its root class
+   * is not part of the documented classes
+   */
+  ClassTree prepareConfigSet(Map<String, String> configSet) {
+    setupConfigSet(configSet);
+    ClassTree rootClassTree = classTreeIndex.getClassTree(rootClassName);
+    if (rootClassTree != null) {
+      classifyClassTree(rootClassTree, 0);
+    }
+    return rootClassTree;
+  }
+
+  /**
+   * Creates the renderers the traversal of a config set hierarchy is sent to,
+   * each one writing its own output. The default is to render with this
+   * doclet only.
+   *
+   * @return the renderers
+   */
+  protected List<AbstractBeanDoclet> createRenderers() {
+    return Collections.singletonList(this);
+  }
+
+  /**
+   * Opens the output of the current config set. It is rendered to a
+   * temporary file, digested on the fly.
+   *
+   * @param withRootSection
+   *     whether a root section is going to be written
+   * @throws IOException
+   *     the iO exception
+   * @throws NoSuchAlgorithmException
+   *     if the digest algorithm is not supported
+   */
+  private void openOutput(boolean withRootSection) throws IOException, NoSuchAlgorithmException {
+    outputFile = getOutputFile(rootClassName);
+    outputFile.getParentFile().mkdirs();
+    tmpOutputFile = File.createTempFile(outputFile.getName() + ".", ".tmp", outputFile.getParentFile());
+    outputDigest = MessageDigest.getInstance(OUTPUT_DIGEST);
+    outputStream = new DigestOutputStream(new FileOutputStream(tmpOutputFile), outputDigest);
+    if (asyncOutput) {
+      // The digest is computed by the I/O thread as well.
+      outputStream = new AsyncOutputStream(outputStream, outputBufferSize, outputQueueSize);
+    }
+    outputWriter = new Utf8Writer(outputStream, WRITE_BUFFER_SIZE);
+    writer = outputWriter;
+    writeHeader();
+    if (withRootSection && isRenderingTextFragments()) {
+      if (fragmentCacheEnabled) {
+        setupFragmentCache(outputFile);
+      }
+      if (sectionExecutor != null) {
+        writer = new FragmentWriter();
+      }
+      if (chunkedOutput) {
+        getChunkDir().mkdirs();
+        pendingChunks = new ArrayList<Future<?>>();
+        writtenChunks = Collections.synchronizedSet(new HashSet<File>());
+      }
+    }
+  }
+
+  /**
+   * Closes the output of the current config set, replacing the output file if
+   * it changed.
+   *
+   * @param stats
+   *     the statistics of the config set to count the output in, or null
+   * @return the size of the output
+   * @throws IOException
+   *     the iO exception
+   * @throws NoSuchAlgorithmException
+   *     if the digest algorithm is not supported
+   */
+  private long closeOutput(PerformanceReport.ConfigSetStats stats) throws IOException, NoSuchAlgorithmException {
+    if (writtenChunks != null) {
+      awaitChunks();
+      pruneChunks();
+    }
+    if (writer instanceof FragmentWriter) {
+      ((FragmentWriter) writer).writeTo(outputWriter);
+      writer = outputWriter;
+    }
+    writeFooter();
+    long ioNanos = System.nanoTime();
+    Object flushEvent = RECORDER.beginOutput();
+    writer.flush();
+    if (flushEvent != null) {
+      RECORDER.endOutput(flushEvent, "flush", outputFile.getPath(), outputWriter.getByteCount());
+    }
+    Object closeEvent = RECORDER.beginOutput();
+    writer.close();
+    long bytesWritten = tmpOutputFile.length();
+    if (closeEvent != null) {
+      RECORDER.endOutput(closeEvent, "close", outputFile.getPath(), bytesWritten);
+    }
+    if (commitOutput(tmpOutputFile, outputDigest.digest(), outputFile)) {
+      changedOutputs.add(outputFile);
+    }
+    if (fragmentCache != null) {
+      fragmentCache.save();
+    }
+    if (stats != null) {
+      stats.addOutput(bytesWritten, System.nanoTime() - ioNanos);
+    }
+    return bytesWritten;
+  }
+
+  /**
+   * Releases the output of the current config set, deleting its temporary
+   * file if still there.
+   */
+  private void discardOutput() {
+    if (pendingChunks != null) {
+      for (Future<?> pendingChunk : pendingChunks) {
+        pendingChunk.cancel(false);
+      }
+      pendingChunks = null;
+    }
+    writtenChunks = null;
+    if (outputWriter != null) {
+      try {
+        outputWriter.close();
+      } catch (IOException ex) {
+        // Ignored, the output is discarded.
+      }
+      outputWriter = null;
+    }
+    if (tmpOutputFile != null) {
+      tmpOutputFile.delete();
+      tmpOutputFile = null;
+    }
+  }
+
+  /**
+   * Replaces an output file by its newly rendered version, only if their
+   * contents differ. The replacement is atomic whenever the file system
+   * supports it.
+   *
+   * @param tmpFile
+   *     the newly rendered output
+   * @param tmpDigest
+   *     the digest of the newly rendered output
+   * @param f
+   *     the output file
+   * @return true if the output file changed
+   * @throws IOException
+   *     the iO exception
+   * @throws NoSuchAlgorithmException
+   *     if the digest algorithm is not supported
+   */
+  static boolean commitOutput(File tmpFile, byte[] tmpDigest, File f)
+      throws IOException, NoSuchAlgorithmException {
+    if (f.isFile() && f.length() == tmpFile.length()) {
+      MessageDigest digest = MessageDigest.getInstance(OUTPUT_DIGEST);
+      InputStream in = new DigestInputStream(new FileInputStream(f), digest);
+      try {
+        byte[] buffer = new byte[8192];
+        while (in.read(buffer) >= 0) {
+          // Digests the existing content.
+        }
+      } finally {
+        in.close();
+      }
+      if (MessageDigest.isEqual(tmpDigest, digest.digest())) {
+        return false;
       }
     }
+    try {
+      Files.move(tmpFile.toPath(), f.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException ex) {
+      Files.move(tmpFile.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
     return true;
   }
 
+  /**
+   * Sets up the fragment cache of the current config set. Its version key
+   * covers the doclet version and the options and documented classes of the
+   * config set, the latter driving the resolution of inline links.
+   *
+   * @param outputFile
+   *     the output file of the config set
+   */
+  private void setupFragmentCache(File outputFile) {
+    FragmentCache.Fingerprint configSetFingerprint = new FragmentCache.Fingerprint();
+    configSetFingerprint.add(apidocUrl).add(configSetKey).add(Boolean.toString(chunkedOutput));
+    for (int i = documentedClasses.nextSetBit(0); i >= 0; i = documentedClasses.nextSetBit(i + 1)) {
+      configSetFingerprint.add(classTreeIndex.getClassDoc(i).qualifiedTypeName());
+    }
+    String versionKey = getClass().getName() + "|" + AbstractBeanDoclet.class.getPackage().getImplementationVersion()
+        + "|" + configSetFingerprint.toHex();
+    File cacheFile = new File(getFragmentCacheDir(), outputFile.getName() + "." + Integer.toHexString(
+        configSetKey.hashCode()));
+    fragmentCacheFiles.add(cacheFile);
+    fragmentCache = new FragmentCache(cacheFile, versionKey, fragmentCacheMaxSize);
+    fragmentCache.load();
+  }
+
+  private File getFragmentCacheDir() {
+    return new File(outputDir, ".fragment-cache");
+  }
+
+  /**
+   * Deletes the cache files of the output formats that were not used by this
+   * run, i.e. of config sets that no longer exist.
+   */
+  private void pruneFragmentCache() {
+    File[] cacheFiles = getFragmentCacheDir().listFiles();
+    if (cacheFiles != null) {
+      for (File cacheFile : cacheFiles) {
+        for (String outputExtension : getOutputExtensions()) {
+          if (cacheFile.getName().contains(outputExtension + ".") && !fragmentCacheFiles.contains(cacheFile)) {
+            cacheFile.delete();
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets the output file of a root class.
+   *
+   * @param rootClass
+   *     the root class name
+   * @return the output file
+   */
+  protected File getOutputFile(String rootClass) {
+    return new File(outputDir, rootClass.substring(rootClass.lastIndexOf(".") + 1) + getOutputExtension());
+  }
+
+  /**
+   * Creates a new doclet instance sharing the run-wide options of this one. It
+   * is used as an independent rendering context so that config sets can be
+   * generated concurrently.
+   *
+   * @return the rendering context
+   */
+  protected AbstractBeanDoclet createRenderingContext() {
+    return createRenderingContext(getClass());
+  }
+
+  /**
+   * Creates a new doclet instance of a given class sharing the run-wide
+   * options of this one.
+   *
+   * @param docletClass
+   *     the doclet class
+   * @return the rendering context
+   */
+  protected AbstractBeanDoclet createRenderingContext(Class<? extends AbstractBeanDoclet> docletClass) {
+    AbstractBeanDoclet context;
+    try {
+      context = docletClass.newInstance();
+    } catch (Exception ex) {
+      throw new IllegalStateException("Could not instantiate " + docletClass.getName(), ex);
+    }
+    context.apidocUrl = apidocUrl;
+    context.formats = formats;
+    context.stylesheet = stylesheet;
+    context.stylesheetOutputExtension = stylesheetOutputExtension;
+    context.asyncOutput = asyncOutput;
+    context.outputBufferSize = outputBufferSize;
+    context.outputQueueSize = outputQueueSize;
+    context.outputDir = outputDir;
+    context.workers = workers;
+    context.sectionWorkers = sectionWorkers;
+    context.fragmentCacheEnabled = fragmentCacheEnabled;
+    context.fragmentCacheMaxSize = fragmentCacheMaxSize;
+    context.fragmentCacheFiles = fragmentCacheFiles;
+    context.changedOutputs = changedOutputs;
+    context.failures = failures;
+    context.chunkedOutput = chunkedOutput;
+    context.changedChunks = changedChunks;
+    context.sectionExecutor = sectionExecutor;
+    context.classTreeIndex = classTreeIndex;
+    context.inheritDocCache = inheritDocCache;
+    context.typeRenderer = typeRenderer;
+    context.performanceReport = performanceReport;
+    return context;
+  }
+
+  /**
+   * Adopts the current config set state of another doclet.
+   *
+   * @param doclet
+   *     the doclet to adopt the config set state of
+   */
+  protected void adoptConfigSetState(AbstractBeanDoclet doclet) {
+    rootClassName = doclet.rootClassName;
+    configSetKey = doclet.configSetKey;
+    maxDepth = doclet.maxDepth;
+    includedPackages = doclet.includedPackages;
+    excludedSubtrees = doclet.excludedSubtrees;
+    treeDepth = doclet.treeDepth;
+    documentedTrees = doclet.documentedTrees;
+    documentedClasses = doclet.documentedClasses;
+    resolvedLinks = doclet.resolvedLinks;
+  }
+
+  /**
+   * Gets the performance report file, as set by the
+   * <code>-perfReport</code> option. A relative path is resolved against the
+   * output directory.
+   *
+   * @return the performance report file
+   */
+  private File getPerformanceReportFile() {
+    File reportFile = new File(perfReportFile);
+    if (reportFile.isAbsolute()) {
+      return reportFile;
+    }
+    return new File(outputDir, perfReportFile);
+  }
+
+  /**
+   * Gets the run-wide list of output formats, as set by the
+   * <code>-formats</code> option.
+   *
+   * @return the colon-separated output formats or null if not set
+   */
+  protected String getFormats() {
+    return formats;
+  }
+
+  /**
+   * Gets the stylesheet the output is transformed with, as set by the
+   * <code>-stylesheet</code> option.
+   *
+   * @return the stylesheet path or null if not set
+   */
+  protected String getStylesheet() {
+    return stylesheet;
+  }
+
+  /**
+   * Gets the extension of the outputs transformed by a stylesheet.
+   *
+   * @return the transformed output extension
+   */
+  protected String getStylesheetOutputExtension() {
+    return stylesheetOutputExtension;
+  }
+
   /**
    * Gets output extension.
    *
@@ -143,6 +791,15 @@ public abstract class AbstractBeanDoclet {
    */
   protected abstract String getOutputExtension();
 
+  /**
+   * Gets the extensions of all the outputs generated for a config set.
+   *
+   * @return the output extensions
+   */
+  protected List<String> getOutputExtensions() {
+    return Collections.singletonList(getOutputExtension());
+  }
+
   /**
    * Write root section.
    *
@@ -151,7 +808,33 @@ public abstract class AbstractBeanDoclet {
    * @throws IOException
    *     the iO exception
    */
-  protected abstract void writeRootSection(ClassTree rootClassTree) throws IOException;
+  protected void writeRootSection(ClassTree rootClassTree) throws IOException {
+    openRootSection(rootClassTree);
+    processClassTree(rootClassTree);
+    closeRootSection(rootClassTree);
+  }
+
+  /**
+   * Open root section.
+   *
+   * @param rootClassTree
+   *     the root class tree
+   * @throws IOException
+   *     the iO exception
+   */
+  protected abstract void openRootSection(ClassTree rootClassTree) throws IOException;
+
+  /**
+   * Close root section.
+   *
+   * @param rootClassTree
+   *     the root class tree
+   * @throws IOException
+   *     the iO exception
+   */
+  protected void closeRootSection(ClassTree rootClassTree) throws IOException {
+    // Empty default implementation
+  }
 
   /**
    * Write header.
@@ -163,6 +846,37 @@ public abstract class AbstractBeanDoclet {
     // Empty default implementation
   }
 
+  /**
+   * Write footer.
+   *
+   * @throws IOException
+   *     the iO exception
+   */
+  protected void writeFooter() throws IOException {
+    // Empty default implementation
+  }
+
+  /**
+   * Gets the raw output stream of the current output, for doclets that do not
+   * render text through the writer. Whatever is buffered on top of it must be
+   * flushed by the footer.
+   *
+   * @return the output stream
+   */
+  protected OutputStream getOutputStream() {
+    return outputStream;
+  }
+
+  /**
+   * Whether class sections are rendered as text through the writer, and can
+   * therefore be rendered concurrently and cached.
+   *
+   * @return true by default
+   */
+  protected boolean isRenderingTextFragments() {
+    return true;
+  }
+
   /**
    * Process class tree.
    *
@@ -172,31 +886,40 @@ public abstract class AbstractBeanDoclet {
    *     the iO exception
    */
   protected void processClassTree(ClassTree classTree) throws IOException {
-    ClassDoc classDoc = classTree.getRoot();
     // boolean childInSection = classTree.getSubclasses().size() > 1;
     boolean childInSection = false;
-    if (!isInternalOrDeprecated(classDoc)) {
-      writeClassSection(classTree, classDoc);
-      if (!childInSection) {
+    int rootDepth = treeDepth;
+    Deque<ClassTreeVisit> stack = new ArrayDeque<ClassTreeVisit>();
+    stack.push(new ClassTreeVisit(classTree, rootDepth, false));
+    while (!stack.isEmpty()) {
+      ClassTreeVisit visit = stack.pop();
+      treeDepth = visit.depth;
+      if (visit.closing) {
         closeClassSection();
+        continue;
       }
-    }
-    if (maxDepth < 0 || treeDepth < maxDepth) {
-      treeDepth++;
-      List<ClassTree> children = new ArrayList<ClassTree>(classTree.getSubclasses());
-      Collections.sort(children);
-      for (ClassTree subclassTree : children) {
-        if (shouldTreeBeDocumented(subclassTree.getRoot())) {
-          processClassTree(subclassTree);
+      if (!isInternalOrDeprecated(visit.classTree)) {
+        if (chunkedOutput) {
+          writeClassChunk(visit.classTree);
+        } else {
+          writeClassSection(visit.classTree, visit.classTree.getRoot());
+          if (!childInSection) {
+            closeClassSection();
+          } else {
+            stack.push(new ClassTreeVisit(visit.classTree, visit.depth, true));
+          }
         }
       }
-      treeDepth--;
-    }
-    if (!isInternalOrDeprecated(classDoc)) {
-      if (childInSection) {
-        closeClassSection();
+      if (maxDepth < 0 || visit.depth < maxDepth) {
+        List<ClassTree> children = visit.classTree.getSortedSubclasses();
+        for (int i = children.size() - 1; i >= 0; i--) {
+          if (shouldTreeBeDocumented(children.get(i))) {
+            stack.push(new ClassTreeVisit(children.get(i), visit.depth + 1, false));
+          }
+        }
       }
     }
+    treeDepth = rootDepth;
   }
 
   /**
@@ -223,115 +946,226 @@ public abstract class AbstractBeanDoclet {
       throws IOException;
 
   /**
-   * Is internal or deprecated.
+   * Writes a class section to its own chunk file, and a reference to it in
+   * place of the section.
    *
-   * @param classDoc the class doc
-   * @return the boolean
+   * @param classTree
+   *     the class tree
+   * @throws IOException
+   *     the iO exception
    */
-  protected boolean isInternalOrDeprecated(ClassDoc classDoc) {
-    return classDoc.tags("@internal").length > 0 || classDoc.tags("@deprecated").length > 0;
-  }
+  protected abstract void writeClassChunk(ClassTree classTree) throws IOException;
 
   /**
-   * Should tree be documented.
+   * Waits for the chunks of the current output rendered concurrently.
    *
-   * @param classDoc the class doc
-   * @return the boolean
+   * @throws IOException
+   *     if a chunk could not be written
    */
-  protected boolean shouldTreeBeDocumented(ClassDoc classDoc) {
-    // handled individually for each class.
-    // if (isInternalOrDeprecated(classDoc)) {
-    // return false;
-    // }
-    if (excludedSubtrees.contains(classDoc.qualifiedTypeName())) {
-      return false;
+  private void awaitChunks() throws IOException {
+    for (Future<?> pendingChunk : pendingChunks) {
+      try {
+        pendingChunk.get();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while waiting for a chunk", ex);
+      } catch (ExecutionException ex) {
+        if (ex.getCause() instanceof IOException) {
+          throw (IOException) ex.getCause();
+        }
+        throw new IOException("Chunk rendering failed", ex.getCause());
+      }
     }
-    if (includedPackages == null) {
-      return true;
+    pendingChunks.clear();
+  }
+
+  /**
+   * Deletes the chunk files of the current output format that were not
+   * written this time, i.e. of classes no longer documented.
+   */
+  private void pruneChunks() {
+    File[] chunkFiles = getChunkDir().listFiles();
+    if (chunkFiles != null) {
+      for (File chunkFile : chunkFiles) {
+        if (chunkFile.getName().endsWith(getOutputExtension()) && !writtenChunks.contains(chunkFile)) {
+          chunkFile.delete();
+        }
+      }
     }
-    String pack = classDoc.containingPackage().name();
-    for (String includedPackage : includedPackages) {
-      if (pack.contains(includedPackage)) {
-        return true;
+  }
+
+  /**
+   * Gets the directory of the chunk files of the current output, named after
+   * the output file.
+   *
+   * @return the chunk directory
+   */
+  File getChunkDir() {
+    return new File(outputDir, rootClassName.substring(rootClassName.lastIndexOf(".") + 1));
+  }
+
+  /**
+   * Whether chunk files are being written for the current output.
+   *
+   * @return true if the output is chunked and opened
+   */
+  boolean isWritingChunks() {
+    return writtenChunks != null;
+  }
+
+  /**
+   * Registers a chunk file of the current output, so that it is kept and
+   * waited for when the output is closed.
+   *
+   * @param chunkFile
+   *     the chunk file
+   * @param pendingChunk
+   *     the chunk being rendered concurrently, or null
+   */
+  void addChunk(File chunkFile, Future<?> pendingChunk) {
+    writtenChunks.add(chunkFile);
+    if (pendingChunk != null) {
+      pendingChunks.add(pendingChunk);
+    }
+  }
+
+  /**
+   * Reports a chunk file whose content changed.
+   *
+   * @param chunkFile
+   *     the chunk file
+   */
+  void addChangedChunk(File chunkFile) {
+    changedChunks.add(chunkFile);
+  }
+
+  /**
+   * Whether class sections are written to their own chunk files.
+   *
+   * @return true if the <code>-chunkedOutput</code> option is set and
+   * sections are rendered as text
+   */
+  protected boolean isChunkedOutput() {
+    return chunkedOutput && isRenderingTextFragments();
+  }
+
+  /**
+   * Classifies the classes of a class tree for the current config set,
+   * following the same rules as {@link #processClassTree(ClassTree)}. It
+   * records the subtrees to document and the classes that get documented in
+   * the current output. On a lazy index, the visited nodes are expanded on
+   * the way, so that only the documented part of the hierarchy and the direct
+   * subclasses it lists get materialized.
+   *
+   * @param classTree
+   *     the class tree
+   * @param depth
+   *     the depth of the class tree
+   */
+  private void classifyClassTree(ClassTree classTree, int depth) {
+    Deque<ClassTreeVisit> stack = new ArrayDeque<ClassTreeVisit>();
+    stack.push(new ClassTreeVisit(classTree, depth, false));
+    while (!stack.isEmpty()) {
+      ClassTreeVisit visit = stack.pop();
+      classTreeIndex.expand(visit.classTree);
+      boolean documented = !isInternalOrDeprecated(visit.classTree);
+      if (documented) {
+        documentedClasses.set(visit.classTree.getOrdinal());
+      }
+      if (configSetStats != null) {
+        configSetStats.addVisitedClass(classTreeIndex.isInternal(visit.classTree), classTreeIndex.isDeprecated(
+            visit.classTree), documented ? countPropertyRows(visit.classTree) : 0);
+      }
+      if (maxDepth < 0 || visit.depth < maxDepth) {
+        for (ClassTree subclassTree : visit.classTree.getSortedSubclasses()) {
+          if (shouldTreeBeDocumented(subclassTree.getRoot())) {
+            documentedTrees.set(subclassTree.getOrdinal());
+            stack.push(new ClassTreeVisit(subclassTree, visit.depth + 1, false));
+          } else if (configSetStats != null) {
+            configSetStats.addExcludedSubtree();
+          }
+        }
       }
     }
-    return false;
   }
 
   /**
-   * Process class doc.
+   * Counts the property rows of a class section, i.e. its distinct
+   * documented properties.
    *
    * @param classTree
    *     the class tree
-   * @throws IOException
-   *     the iO exception
+   * @return the number of property rows
    */
-  protected abstract void processClassDoc(ClassTree classTree) throws IOException;
+  int countPropertyRows(ClassTree classTree) {
+    Set<String> properties = new HashSet<String>();
+    for (MethodDoc methodDoc : classTree.getRoot().methods()) {
+      if (isSetterForRefDoc(methodDoc)) {
+        properties.add(getProperty(methodDoc));
+      }
+    }
+    return properties.size();
+  }
 
   /**
-   * Is setter for ref doc.
+   * Is internal or deprecated.
    *
-   * @param methodDoc
-   *     the method doc
+   * @param classDoc the class doc
    * @return the boolean
    */
-  protected boolean isSetterForRefDoc(MethodDoc methodDoc) {
-    return methodDoc.isPublic() && isSetter(methodDoc) && methodDoc.tags("@internal").length == 0 && methodDoc.tags(
-        "@deprecated").length == 0;
+  protected boolean isInternalOrDeprecated(ClassDoc classDoc) {
+    return classTreeIndex.isInternalOrDeprecated(classDoc);
   }
 
   /**
-   * Hyphenate dotted string.
+   * Is the root of a class tree internal or deprecated.
    *
-   * @param source
-   *     the source
-   * @return the string
+   * @param classTree the class tree
+   * @return the boolean
    */
-  protected String hyphenateDottedString(String source) {
-    return source.replace(".", "&#x200B;.");
+  protected boolean isInternalOrDeprecated(ClassTree classTree) {
+    return classTreeIndex.isInternal(classTree) || classTreeIndex.isDeprecated(classTree);
   }
 
   /**
-   * Hyphenate camel case.
+   * Should tree be documented, as classified for the current config set.
    *
-   * @param source
-   *     the source
-   * @return the string
+   * @param classTree the class tree
+   * @return the boolean
    */
-  protected String hyphenateCamelCase(String source) {
-    StringBuilder buff = new StringBuilder();
-    for (int i = 0; i < source.length() - 1; i++) {
-      char c1 = source.charAt(i);
-      char c2 = source.charAt(i + 1);
-      buff.append(c1);
-      if (Character.isLowerCase(c1) && Character.isUpperCase(c2)) {
-        buff.append("&#x200B;");
-      }
-    }
-    buff.append(source.charAt(source.length() - 1));
-    return buff.toString();
+  protected boolean shouldTreeBeDocumented(ClassTree classTree) {
+    return documentedTrees.get(classTree.getOrdinal());
   }
 
   /**
-   * Compute javadoc url.
+   * Should tree be documented.
    *
-   * @param qualifiedName
-   *     the qualified name
-   * @return the string
+   * @param classDoc the class doc
+   * @return the boolean
    */
-  protected String computeJavadocUrl(String qualifiedName) {
-    return apidocUrl + "/" + qualifiedName.replace(".", "/") + ".html";
+  protected boolean shouldTreeBeDocumented(ClassDoc classDoc) {
+    // handled individually for each class.
+    // if (isInternalOrDeprecated(classDoc)) {
+    // return false;
+    // }
+    if (excludedSubtrees != null && excludedSubtrees.matches(classDoc.qualifiedTypeName())) {
+      return false;
+    }
+    if (includedPackages == null) {
+      return true;
+    }
+    return includedPackages.matches(classDoc.containingPackage().name());
   }
 
   /**
-   * Javadoc to doc.
+   * Is setter for ref doc.
    *
-   * @param source
-   *     the source
-   * @return the string
+   * @param methodDoc
+   *     the method doc
+   * @return the boolean
    */
-  protected String javadocToDoc(String source) {
-    return source;
+  protected boolean isSetterForRefDoc(MethodDoc methodDoc) {
+    return methodDoc.isPublic() && isSetter(methodDoc) && !classTreeIndex.isInternalOrDeprecated(methodDoc);
   }
 
   /**
@@ -356,19 +1190,6 @@ public abstract class AbstractBeanDoclet {
     return methodDoc.name().startsWith("set");
   }
 
-  /**
-   * Write line.
-   *
-   * @param content
-   *     the content
-   * @throws IOException
-   *     the iO exception
-   */
-  protected void writeLine(String content) throws IOException {
-    writer.write(content);
-    writer.write("\n");
-  }
-
   /**
    * Indicates this doclet supports 1.5 sources.
    *
@@ -378,7 +1199,7 @@ public abstract class AbstractBeanDoclet {
     return LanguageVersion.JAVA_1_5;
   }
 
-  private void readOptions(String[][] options) {
+  private void readOptions(RootDoc root, String[][] options) {
     for (String[] opt : options) {
       String[] splittedOpt = opt[0].split("_");
       String optionName = splittedOpt[0];
@@ -396,6 +1217,50 @@ public abstract class AbstractBeanDoclet {
         outputDir = opt[1];
       } else if (optionName.equals("-apidocUrl")) {
         apidocUrl = opt[1];
+      } else if (optionName.equals("-sectionWorkers")) {
+        sectionWorkers = Integer.parseInt(opt[1]);
+        if (sectionWorkers <= 0) {
+          sectionWorkers = Runtime.getRuntime().availableProcessors();
+        }
+      } else if (optionName.equals("-formats")) {
+        formats = opt[1];
+      } else if (optionName.equals("-fragmentCache")) {
+        fragmentCacheEnabled = true;
+      } else if (optionName.equals("-fragmentCacheMaxSize")) {
+        fragmentCacheMaxSize = Long.parseLong(opt[1]);
+      } else if (optionName.equals("-lazyHierarchy")) {
+        lazyHierarchy = true;
+      } else if (optionName.equals("-chunkedOutput")) {
+        chunkedOutput = true;
+      } else if (optionName.equals("-snapshot")) {
+        snapshotFile = opt[1];
+      } else if (optionName.equals("-perfReport")) {
+        perfReportFile = opt[1];
+      } else if (optionName.equals("-asyncOutput")) {
+        asyncOutput = true;
+      } else if (optionName.equals("-outputBufferSize")) {
+        int size = Integer.parseInt(opt[1]);
+        if (size < 1) {
+          root.printError("Invalid output buffer size " + size + ", keeping " + outputBufferSize);
+        } else {
+          outputBufferSize = size;
+        }
+      } else if (optionName.equals("-outputQueueSize")) {
+        int size = Integer.parseInt(opt[1]);
+        if (size < 1) {
+          root.printError("Invalid output queue size " + size + ", keeping " + outputQueueSize);
+        } else {
+          outputQueueSize = size;
+        }
+      } else if (optionName.equals("-stylesheet")) {
+        stylesheet = opt[1];
+      } else if (optionName.equals("-stylesheetOutputExtension")) {
+        stylesheetOutputExtension = opt[1];
+      } else if (optionName.equals("-workers")) {
+        workers = Integer.parseInt(opt[1]);
+        if (workers <= 0) {
+          workers = Runtime.getRuntime().availableProcessors();
+        }
       } else if (configSet != null) {
         if (optionName.equals("-rootClassName")) {
           configSet.put("rootClassName", opt[1]);
@@ -430,6 +1295,34 @@ public abstract class AbstractBeanDoclet {
       return 2;
     } else if (option.equals("-apidocUrl")) {
       return 2;
+    } else if (option.equals("-workers")) {
+      return 2;
+    } else if (option.equals("-sectionWorkers")) {
+      return 2;
+    } else if (option.equals("-lazyHierarchy")) {
+      return 1;
+    } else if (option.equals("-chunkedOutput")) {
+      return 1;
+    } else if (option.equals("-snapshot")) {
+      return 2;
+    } else if (option.equals("-perfReport")) {
+      return 2;
+    } else if (option.equals("-asyncOutput")) {
+      return 1;
+    } else if (option.equals("-outputBufferSize")) {
+      return 2;
+    } else if (option.equals("-outputQueueSize")) {
+      return 2;
+    } else if (option.equals("-stylesheet")) {
+      return 2;
+    } else if (option.equals("-stylesheetOutputExtension")) {
+      return 2;
+    } else if (option.equals("-formats")) {
+      return 2;
+    } else if (option.equals("-fragmentCache")) {
+      return 1;
+    } else if (option.equals("-fragmentCacheMaxSize")) {
+      return 2;
     }
     return 0;
   }
@@ -443,4 +1336,20 @@ public abstract class AbstractBeanDoclet {
   protected static void setThreadInstance(AbstractBeanDoclet doclet) {
     threadInstance.set(doclet);
   }
+
+  /**
+   * A pending visit of the iterative class tree traversal.
+   */
+  private static final class ClassTreeVisit {
+
+    private final ClassTree classTree;
+    private final int       depth;
+    private final boolean   closing;
+
+    private ClassTreeVisit(ClassTree classTree, int depth, boolean closing) {
+      this.classTree = classTree;
+      this.depth = depth;
+      this.closing = closing;
+    }
+  }
 }
@@ -0,0 +1,554 @@
+/*
+ * Copyright (c) 2005-2016 Vincent Vandenschrick. All rights reserved.
+ *
+ *  This file is part of the Jspresso framework.
+ *
+ *  Jspresso is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Jspresso is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with Jspresso.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jspresso.beandocbook;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import com.sun.javadoc.ClassDoc;
+import com.sun.javadoc.Doc;
+import com.sun.javadoc.MethodDoc;
+import com.sun.javadoc.SeeTag;
+import com.sun.javadoc.Tag;
+import com.sun.javadoc.Type;
+
+/**
+ * Base class of the doclets rendering a single output format. The
+ * traversal of the config sets and the outputs are driven by
+ * {@link AbstractBeanDoclet}, while this class renders the class sections
+ * out of the javadoc model, concurrently or through the fragment cache, and
+ * leaves the markup of each format to its subclasses.
+ *
+ * @version $LastChangedRevision: 3701 $
+ * @author Vincent Vandenschrick
+ */
+public abstract class AbstractBeanFormatDoclet extends AbstractBeanDoclet {
+
+  private static final DocletRecorder RECORDER = DocletRecorder.getInstance();
+
+  /**
+   * Creates a rendering context that carries on the current config set state
+   * of this doclet. It is used to render a class section concurrently to its
+   * own buffer.
+   *
+   * @return the rendering context
+   */
+  protected AbstractBeanFormatDoclet createFragmentContext() {
+    AbstractBeanFormatDoclet context = (AbstractBeanFormatDoclet) createRenderingContext();
+    context.adoptConfigSetState(this);
+    return context;
+  }
+
+  /**
+   * Writes a class section to its own chunk file, and a reference to it in
+   * place of the section. The chunk is rendered concurrently whenever
+   * sections are, and only replaces the chunk file if it changed. Outputs
+   * that are not rendered as text keep their sections in place.
+   *
+   * @param classTree
+   *     the class tree
+   * @throws IOException
+   *     the iO exception
+   */
+  @Override
+  protected void writeClassChunk(final ClassTree classTree) throws IOException {
+    if (!isWritingChunks()) {
+      writeClassSection(classTree, classTree.getRoot());
+      closeClassSection();
+      return;
+    }
+    final File chunkFile = new File(getChunkDir(), getChunkName(classTree));
+    writeChunkReference(classTree, getChunkDir().getName() + "/" + chunkFile.getName());
+    final AbstractBeanFormatDoclet context = createFragmentContext();
+    context.setFragmentCache(getFragmentCache());
+    ExecutorService sectionExecutor = getSectionExecutor();
+    if (sectionExecutor != null) {
+      addChunk(chunkFile, sectionExecutor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws IOException, NoSuchAlgorithmException {
+          context.renderChunk(classTree, chunkFile);
+          return null;
+        }
+      }));
+    } else {
+      addChunk(chunkFile, null);
+      try {
+        context.renderChunk(classTree, chunkFile);
+      } catch (NoSuchAlgorithmException ex) {
+        throw new IOException(ex);
+      }
+    }
+  }
+
+  /**
+   * Renders a class section as a standalone chunk file.
+   *
+   * @param classTree
+   *     the class tree
+   * @param chunkFile
+   *     the chunk file
+   * @throws IOException
+   *     the iO exception
+   * @throws NoSuchAlgorithmException
+   *     if the digest algorithm is not supported
+   */
+  private void renderChunk(ClassTree classTree, File chunkFile) throws IOException, NoSuchAlgorithmException {
+    File tmpChunkFile = File.createTempFile(chunkFile.getName() + ".", ".tmp", chunkFile.getParentFile());
+    try {
+      MessageDigest chunkDigest = MessageDigest.getInstance(OUTPUT_DIGEST);
+      Utf8Writer chunkWriter = new Utf8Writer(new DigestOutputStream(new FileOutputStream(tmpChunkFile),
+          chunkDigest), WRITE_BUFFER_SIZE);
+      try {
+        writer = chunkWriter;
+        openChunk(classTree);
+        writeClassSection(classTree, classTree.getRoot());
+        closeClassSection();
+      } finally {
+        chunkWriter.close();
+      }
+      if (commitOutput(tmpChunkFile, chunkDigest.digest(), chunkFile)) {
+        addChangedChunk(chunkFile);
+      }
+    } finally {
+      tmpChunkFile.delete();
+    }
+  }
+
+  /**
+   * Gets the chunk file name of a class section, relative to the chunk
+   * directory.
+   *
+   * @param classTree
+   *     the class tree
+   * @return the chunk file name
+   */
+  protected String getChunkName(ClassTree classTree) {
+    return getChunkName(classTree.getRoot().qualifiedTypeName());
+  }
+
+  /**
+   * Gets the chunk file name of a class, relative to the chunk directory.
+   *
+   * @param qualifiedName
+   *     the qualified class name
+   * @return the chunk file name
+   */
+  protected String getChunkName(String qualifiedName) {
+    return qualifiedName + getOutputExtension();
+  }
+
+  /**
+   * Starts a chunk file, e.g. with the declarations of a standalone document.
+   *
+   * @param classTree
+   *     the class tree of the chunk
+   * @throws IOException
+   *     the iO exception
+   */
+  protected void openChunk(ClassTree classTree) throws IOException {
+    // Empty default implementation
+  }
+
+  /**
+   * Writes the reference to a chunk file in place of its class section.
+   *
+   * @param classTree
+   *     the class tree of the chunk
+   * @param href
+   *     the chunk file, relative to the output file
+   * @throws IOException
+   *     the iO exception
+   */
+  protected abstract void writeChunkReference(ClassTree classTree, String href) throws IOException;
+
+  /**
+   * Renders the class doc of a class section, either in place or, when
+   * sections are rendered concurrently, as a fragment that is stitched back
+   * at the current position of the output.
+   *
+   * @param classTree
+   *     the class tree
+   * @throws IOException
+   *     the iO exception
+   */
+  protected void renderClassDoc(final ClassTree classTree) throws IOException {
+    if (!isRenderingTextFragments()) {
+      Object event = RECORDER.beginClassSection();
+      processClassDoc(classTree);
+      if (event != null) {
+        recordClassSection(event, classTree, -1, false);
+      }
+      return;
+    }
+    final FragmentCache cache = getFragmentCache();
+    final String fingerprint;
+    if (cache != null) {
+      Object event = RECORDER.beginClassSection();
+      fingerprint = computeFingerprint(classTree);
+      String cachedFragment = cache.get(fingerprint);
+      if (cachedFragment != null) {
+        writer.write(cachedFragment);
+        if (event != null) {
+          recordClassSection(event, classTree, Utf8Writer.getEncodedLength(cachedFragment), true);
+        }
+        return;
+      }
+    } else {
+      fingerprint = null;
+    }
+    if (getSectionExecutor() != null && writer instanceof FragmentWriter) {
+      final AbstractBeanFormatDoclet context = createFragmentContext();
+      ((FragmentWriter) writer).appendFragment(getSectionExecutor().submit(new Callable<String>() {
+        @Override
+        public String call() throws IOException {
+          // Recorded on the section worker thread.
+          Object event = RECORDER.beginClassSection();
+          StringWriter fragment = new StringWriter();
+          context.writer = fragment;
+          context.processClassDoc(classTree);
+          if (cache != null) {
+            cache.put(fingerprint, fragment.toString());
+          }
+          if (event != null) {
+            context.recordClassSection(event, classTree, Utf8Writer.getEncodedLength(fragment.toString()), false);
+          }
+          return fragment.toString();
+        }
+      }));
+    } else if (cache != null) {
+      Object event = RECORDER.beginClassSection();
+      Writer target = writer;
+      StringWriter fragment = new StringWriter();
+      writer = fragment;
+      try {
+        processClassDoc(classTree);
+      } finally {
+        writer = target;
+      }
+      cache.put(fingerprint, fragment.toString());
+      writer.write(fragment.toString());
+      if (event != null) {
+        recordClassSection(event, classTree, Utf8Writer.getEncodedLength(fragment.toString()), false);
+      }
+    } else {
+      Object event = RECORDER.beginClassSection();
+      long startCount = event != null && writer instanceof Utf8Writer ? ((Utf8Writer) writer).getByteCount() : -1;
+      processClassDoc(classTree);
+      if (event != null) {
+        recordClassSection(event, classTree, startCount >= 0 ? ((Utf8Writer) writer).getByteCount() - startCount
+            : -1, false);
+      }
+    }
+  }
+
+  private void recordClassSection(Object event, ClassTree classTree, long bytesWritten, boolean cached) {
+    RECORDER.endClassSection(event, classTree.getRoot().qualifiedTypeName(), getOutputExtension(), countPropertyRows(
+        classTree), bytesWritten, cached);
+  }
+
+  /**
+   * Computes the fingerprint of everything the class doc rendering of a class
+   * tree depends on, besides the config set.
+   *
+   * @param classTree
+   *     the class tree
+   * @return the fingerprint
+   */
+  protected String computeFingerprint(ClassTree classTree) {
+    FragmentCache.Fingerprint fingerprint = new FragmentCache.Fingerprint();
+    ClassDoc classDoc = classTree.getRoot();
+    fingerprint.add(getFragmentContextKey()).add(classDoc.qualifiedTypeName()).add(classDoc.name());
+    addInlineTags(fingerprint, classDoc, classDoc.inlineTags());
+    if (classDoc.superclassType() != null) {
+      fingerprint.add(classDoc.superclassType().qualifiedTypeName()).add(classDoc.superclass().name()).add(
+          isInternalOrDeprecated(classDoc.superclassType().asClassDoc()));
+    }
+    for (ClassTree subclassTree : classTree.getSortedSubclasses()) {
+      fingerprint.add(subclassTree.getRoot().qualifiedTypeName()).add(isInternalOrDeprecated(subclassTree));
+    }
+    for (MethodDoc methodDoc : classDoc.methods()) {
+      if (isSetterForRefDoc(methodDoc)) {
+        Type type = methodDoc.parameters()[0].type();
+        fingerprint.add(methodDoc.name()).add(type.toString()).add(type.dimension());
+        addInlineTags(fingerprint, methodDoc, methodDoc.inlineTags());
+      }
+    }
+    return fingerprint.toHex();
+  }
+
+  private void addInlineTags(FragmentCache.Fingerprint fingerprint, Doc holder, Tag[] tags) {
+    for (Tag tag : tags) {
+      fingerprint.add(tag.name()).add(tag.text());
+      if (tag instanceof SeeTag && ((SeeTag) tag).referencedClass() != null) {
+        fingerprint.add(((SeeTag) tag).referencedClass().qualifiedTypeName());
+      } else if ("@inheritDoc".equals(tag.name()) && holder instanceof MethodDoc) {
+        addInlineTags(fingerprint, holder, getInheritDocCache().getInheritedTags((MethodDoc) holder));
+      }
+    }
+  }
+
+  /**
+   * Gets a key for the rendering state, besides the config set, that class
+   * doc rendering depends on.
+   *
+   * @return the rendering state key
+   */
+  protected String getFragmentContextKey() {
+    return "";
+  }
+
+  /**
+   * Process class doc.
+   *
+   * @param classTree
+   *     the class tree
+   * @throws IOException
+   *     the iO exception
+   */
+  protected abstract void processClassDoc(ClassTree classTree) throws IOException;
+
+  /**
+   * Hyphenate dotted string.
+   *
+   * @param source
+   *     the source
+   * @return the string
+   */
+  protected String hyphenateDottedString(String source) {
+    return source.replace(".", "&#x200B;.");
+  }
+
+  /**
+   * Hyphenate camel case.
+   *
+   * @param source
+   *     the source
+   * @return the string
+   */
+  protected String hyphenateCamelCase(String source) {
+    StringBuilder buff = new StringBuilder();
+    for (int i = 0; i < source.length() - 1; i++) {
+      char c1 = source.charAt(i);
+      char c2 = source.charAt(i + 1);
+      buff.append(c1);
+      if (Character.isLowerCase(c1) && Character.isUpperCase(c2)) {
+        buff.append("&#x200B;");
+      }
+    }
+    buff.append(source.charAt(source.length() - 1));
+    return buff.toString();
+  }
+
+  /**
+   * Renders a property type, linking the framework types to their javadoc.
+   *
+   * @param type
+   *     the type
+   * @return the type markup
+   */
+  protected String renderType(Type type) {
+    return getTypeRenderer().render(type, this);
+  }
+
+  /**
+   * Compute javadoc url.
+   *
+   * @param qualifiedName
+   *     the qualified name
+   * @return the string
+   */
+  protected String computeJavadocUrl(String qualifiedName) {
+    return getApidocUrl() + "/" + qualifiedName.replace(".", "/") + ".html";
+  }
+
+  /**
+   * Javadoc to doc.
+   *
+   * @param source
+   *     the source
+   * @return the string
+   */
+  protected String javadocToDoc(String source) {
+    return source;
+  }
+
+  /**
+   * Converts the comment of a doc, processing its inline tags.
+   *
+   * @param doc
+   *     the documented element
+   * @return the string
+   */
+  protected String javadocToDoc(Doc doc) {
+    StringBuilder buff = new StringBuilder();
+    appendInlineTags(doc, doc.inlineTags(), buff);
+    return buff.toString();
+  }
+
+  private void appendInlineTags(Doc holder, Tag[] tags, StringBuilder buff) {
+    for (Tag tag : tags) {
+      String name = tag.name();
+      if ("Text".equals(name)) {
+        buff.append(javadocToDoc(tag.text()));
+      } else if ("@code".equals(name)) {
+        buff.append("<code>").append(escapeMarkup(tag.text())).append("</code>");
+      } else if ("@literal".equals(name)) {
+        buff.append(escapeMarkup(tag.text()));
+      } else if ("@link".equals(name) || "@linkplain".equals(name)) {
+        buff.append(resolveLink((SeeTag) tag));
+      } else if ("@inheritDoc".equals(name)) {
+        if (holder instanceof MethodDoc) {
+          appendInlineTags(holder, getInheritDocCache().getInheritedTags((MethodDoc) holder), buff);
+        }
+      } else {
+        buff.append(javadocToDoc(tag.text()));
+      }
+    }
+  }
+
+  /**
+   * Resolves a link inline tag. Links to classes documented in the current
+   * output are internal, links to other framework classes point to the
+   * javadoc. Resolved links are memoized for the whole config set.
+   *
+   * @param seeTag
+   *     the link tag
+   * @return the link markup
+   */
+  private String resolveLink(SeeTag seeTag) {
+    boolean plain = "@linkplain".equals(seeTag.name());
+    String label = seeTag.label();
+    if (label == null || label.length() == 0) {
+      String reference = seeTag.text().trim().split("\\s+", 2)[0].replace('#', '.');
+      label = reference.startsWith(".") ? reference.substring(1) : reference;
+    }
+    ClassDoc referencedClass = seeTag.referencedClass();
+    String target = referencedClass != null ? referencedClass.qualifiedTypeName() : null;
+    String key = getOutputExtension() + (plain ? "|p|" : "|c|") + target + "|" + label;
+    String link = getResolvedLinks().get(key);
+    if (link == null) {
+      if (target != null && isDocumentedClass(target)) {
+        link = createInternalLink(target, label);
+      } else if (target != null && target.startsWith("org.jspresso")) {
+        link = createExternalLink(computeJavadocUrl(target), label);
+      } else {
+        link = label;
+      }
+      if (!plain) {
+        link = "<code>" + link + "</code>";
+      }
+      getResolvedLinks().put(key, link);
+    }
+    return link;
+  }
+
+  /**
+   * Escapes markup characters.
+   *
+   * @param source
+   *     the source
+   * @return the escaped string
+   */
+  protected String escapeMarkup(String source) {
+    StringBuilder buff = null;
+    for (int i = 0; i < source.length(); i++) {
+      char c = source.charAt(i);
+      String entity = null;
+      if (c == '&') {
+        entity = "&amp;";
+      } else if (c == '<') {
+        entity = "&lt;";
+      } else if (c == '>') {
+        entity = "&gt;";
+      }
+      if (entity != null && buff == null) {
+        buff = new StringBuilder(source.length() + 16);
+        buff.append(source, 0, i);
+      }
+      if (buff != null) {
+        if (entity != null) {
+          buff.append(entity);
+        } else {
+          buff.append(c);
+        }
+      }
+    }
+    return buff == null ? source : buff.toString();
+  }
+
+  /**
+   * Creates a link to a class documented in the current output.
+   *
+   * @param qualifiedName
+   *     the qualified name of the target class
+   * @param label
+   *     the link label
+   * @return the link markup
+   */
+  protected abstract String createInternalLink(String qualifiedName, String label);
+
+  /**
+   * Creates a link to an external URL.
+   *
+   * @param url
+   *     the target URL
+   * @param label
+   *     the link label
+   * @return the link markup
+   */
+  protected abstract String createExternalLink(String url, String label);
+
+  /**
+   * Write line.
+   *
+   * @param content
+   *     the content
+   * @throws IOException
+   *     the iO exception
+   */
+  protected void writeLine(String content) throws IOException {
+    writer.write(content);
+    writer.write("\n");
+  }
+
+  /**
+   * Writes static markup, copying its encoded form when writing straight to
+   * the output file.
+   *
+   * @param markup
+   *     the markup
+   * @throws IOException
+   *     the iO exception
+   */
+  protected void write(EncodedMarkup markup) throws IOException {
+    if (writer instanceof Utf8Writer) {
+      ((Utf8Writer) writer).write(markup);
+    } else {
+      writer.write(markup.getText());
+    }
+  }
+}
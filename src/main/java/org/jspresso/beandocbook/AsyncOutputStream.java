@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2005-2016 Vincent Vandenschrick. All rights reserved.
+ *
+ *  This file is part of the Jspresso framework.
+ *
+ *  Jspresso is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Jspresso is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with Jspresso.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jspresso.beandocbook;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Output stream handing filled buffers to a dedicated I/O thread, so that
+ * rendering and writing to a slow storage overlap. Buffers go through a
+ * bounded queue, the rendering thread blocking when the I/O thread lags too
+ * much behind, and are recycled once written. An I/O failure is reported on
+ * the next write, flush or close.
+ *
+ * @version $LastChangedRevision: 3701 $
+ * @author Vincent Vandenschrick
+ */
+public class AsyncOutputStream extends OutputStream {
+
+  private static final Chunk END = new Chunk(new byte[0], 0);
+
+  private final OutputStream                  out;
+  private final int                           bufferSize;
+  private final BlockingQueue<Chunk>          filledChunks;
+  private final ConcurrentLinkedQueue<byte[]> freeBuffers;
+  private final Thread                        ioThread;
+  private volatile IOException                failure;
+  private byte[]                              buffer;
+  private int                                 count;
+  private boolean                             closed;
+
+  /**
+   * Constructs a new <code>AsyncOutputStream</code> instance and starts its
+   * I/O thread.
+   *
+   * @param out
+   *          the underlying output stream, closed by the I/O thread.
+   * @param bufferSize
+   *          the size of the buffers handed to the I/O thread.
+   * @param queueSize
+   *          the maximum number of filled buffers waiting to be written.
+   * @throws IllegalArgumentException
+   *           if the buffer or queue size is lower than 1.
+   */
+  public AsyncOutputStream(OutputStream out, int bufferSize, int queueSize) {
+    if (bufferSize < 1) {
+      throw new IllegalArgumentException("Invalid buffer size " + bufferSize);
+    }
+    if (queueSize < 1) {
+      throw new IllegalArgumentException("Invalid queue size " + queueSize);
+    }
+    this.out = out;
+    this.bufferSize = bufferSize;
+    this.filledChunks = new ArrayBlockingQueue<Chunk>(queueSize);
+    this.freeBuffers = new ConcurrentLinkedQueue<byte[]>();
+    this.buffer = new byte[bufferSize];
+    this.ioThread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        writeChunks();
+      }
+    }, "bean-doc-output");
+    ioThread.setDaemon(true);
+    ioThread.start();
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    if (count == buffer.length) {
+      handOff();
+    }
+    buffer[count++] = (byte) b;
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    while (len > 0) {
+      if (count == buffer.length) {
+        handOff();
+      }
+      int chunk = Math.min(len, buffer.length - count);
+      System.arraycopy(b, off, buffer, count, chunk);
+      count += chunk;
+      off += chunk;
+      len -= chunk;
+    }
+  }
+
+  /**
+   * Hands the pending bytes to the I/O thread, without waiting for them to be
+   * written.
+   *
+   * @throws IOException
+   *           if the I/O thread failed.
+   */
+  @Override
+  public void flush() throws IOException {
+    if (count > 0) {
+      handOff();
+    } else {
+      checkFailure();
+    }
+  }
+
+  /**
+   * Hands the pending bytes to the I/O thread and waits for all of them to
+   * be written and the underlying stream to be closed.
+   *
+   * @throws IOException
+   *           if the I/O thread failed.
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      if (count > 0 && failure == null) {
+        put(new Chunk(buffer, count));
+      }
+      put(END);
+      ioThread.join();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while closing the output");
+    }
+    checkFailure();
+  }
+
+  private void handOff() throws IOException {
+    checkFailure();
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+    try {
+      put(new Chunk(buffer, count));
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while writing the output");
+    }
+    buffer = freeBuffers.poll();
+    if (buffer == null) {
+      buffer = new byte[bufferSize];
+    }
+    count = 0;
+  }
+
+  private void put(Chunk chunk) throws IOException, InterruptedException {
+    while (!filledChunks.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+      if (!ioThread.isAlive()) {
+        throw new IOException("Output thread terminated", failure);
+      }
+    }
+  }
+
+  private void checkFailure() throws IOException {
+    if (failure != null) {
+      throw new IOException("Could not write the output", failure);
+    }
+  }
+
+  private void writeChunks() {
+    try {
+      for (Chunk chunk = filledChunks.take(); chunk != END; chunk = filledChunks.take()) {
+        // Once failed, chunks are drained so that the rendering thread never blocks.
+        if (failure == null) {
+          try {
+            out.write(chunk.data, 0, chunk.length);
+          } catch (IOException ex) {
+            failure = ex;
+          }
+        }
+        freeBuffers.offer(chunk.data);
+      }
+    } catch (InterruptedException ex) {
+      failure = new InterruptedIOException("Output thread interrupted");
+    } finally {
+      try {
+        out.close();
+      } catch (IOException ex) {
+        if (failure == null) {
+          failure = ex;
+        }
+      }
+    }
+  }
+
+  /**
+   * A filled buffer.
+   */
+  private static final class Chunk {
+
+    private final byte[] data;
+    private final int    length;
+
+    private Chunk(byte[] data, int length) {
+      this.data = data;
+      this.length = length;
+    }
+  }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2005-2016 Vincent Vandenschrick. All rights reserved.
+ *
+ *  This file is part of the Jspresso framework.
+ *
+ *  Jspresso is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Jspresso is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with Jspresso.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jspresso.beandocbook;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A config set of a {@link BeanDocGenerator}, i.e. a documented hierarchy
+ * generating its own document. It is the typed counterpart of the
+ * <code>-rootClassName_&lt;set&gt;</code>, <code>-maxDepth_&lt;set&gt;</code>,
+ * <code>-excludedSubtrees_&lt;set&gt;</code> and
+ * <code>-includedPackages_&lt;set&gt;</code> doclet options.
+ *
+ * @version $LastChangedRevision: 3701 $
+ * @author Vincent Vandenschrick
+ */
+public class BeanDocConfigSet {
+
+  private String       name;
+  private String       rootClassName;
+  private int          maxDepth         = -1;
+  private List<String> excludedSubtrees = new ArrayList<String>();
+  private List<String> includedPackages = new ArrayList<String>();
+
+  /**
+   * Constructs a new <code>BeanDocConfigSet</code> instance.
+   */
+  public BeanDocConfigSet() {
+    // Configured through setters.
+  }
+
+  /**
+   * Constructs a new <code>BeanDocConfigSet</code> instance.
+   *
+   * @param name
+   *          the name of the config set.
+   * @param rootClassName
+   *          the root class of the documented hierarchy.
+   */
+  public BeanDocConfigSet(String name, String rootClassName) {
+    this.name = name;
+    this.rootClassName = rootClassName;
+  }
+
+  /**
+   * Gets the name of the config set. It only identifies the config set, and
+   * must not contain underscores.
+   *
+   * @return the name.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Sets the name of the config set.
+   *
+   * @param name
+   *          the name to set.
+   */
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Gets the root class of the documented hierarchy.
+   *
+   * @return the root class name.
+   */
+  public String getRootClassName() {
+    return rootClassName;
+  }
+
+  /**
+   * Sets the root class of the documented hierarchy.
+   *
+   * @param rootClassName
+   *          the root class name to set.
+   */
+  public void setRootClassName(String rootClassName) {
+    this.rootClassName = rootClassName;
+  }
+
+  /**
+   * Gets the maximum depth of the documented hierarchy.
+   *
+   * @return the maximum depth or -1 if not limited.
+   */
+  public int getMaxDepth() {
+    return maxDepth;
+  }
+
+  /**
+   * Sets the maximum depth of the documented hierarchy.
+   *
+   * @param maxDepth
+   *          the maximum depth to set or -1 for no limit.
+   */
+  public void setMaxDepth(int maxDepth) {
+    this.maxDepth = maxDepth;
+  }
+
+  /**
+   * Gets the classes whose subtree is not documented.
+   *
+   * @return the excluded subtree filters.
+   */
+  public List<String> getExcludedSubtrees() {
+    return excludedSubtrees;
+  }
+
+  /**
+   * Sets the classes whose subtree is not documented, as names, prefixes or
+   * globs.
+   *
+   * @param excludedSubtrees
+   *          the excluded subtree filters to set.
+   */
+  public void setExcludedSubtrees(List<String> excludedSubtrees) {
+    this.excludedSubtrees = excludedSubtrees;
+  }
+
+  /**
+   * Gets the packages the documented classes are restricted to.
+   *
+   * @return the included package filters.
+   */
+  public List<String> getIncludedPackages() {
+    return includedPackages;
+  }
+
+  /**
+   * Sets the packages the documented classes are restricted to, as names,
+   * prefixes or globs. All packages are documented when empty.
+   *
+   * @param includedPackages
+   *          the included package filters to set.
+   */
+  public void setIncludedPackages(List<String> includedPackages) {
+    this.includedPackages = includedPackages;
+  }
+
+  /**
+   * Appends the doclet options of this config set.
+   *
+   * @param options
+   *          the doclet options to append to.
+   */
+  void appendOptions(List<String> options) {
+    if (name == null || name.length() == 0 || name.indexOf('_') >= 0) {
+      throw new IllegalArgumentException("Invalid config set name " + name);
+    }
+    if (rootClassName == null) {
+      throw new IllegalArgumentException("Missing root class name of config set " + name);
+    }
+    options.add("-rootClassName_" + name);
+    options.add(rootClassName);
+    if (maxDepth >= 0) {
+      options.add("-maxDepth_" + name);
+      options.add(Integer.toString(maxDepth));
+    }
+    if (excludedSubtrees != null && !excludedSubtrees.isEmpty()) {
+      options.add("-excludedSubtrees_" + name);
+      options.add(BeanDocGenerator.join(excludedSubtrees, ":"));
+    }
+    if (includedPackages != null && !includedPackages.isEmpty()) {
+      options.add("-includedPackages_" + name);
+      options.add(BeanDocGenerator.join(includedPackages, ":"));
+    }
+  }
+}
@@ -0,0 +1,451 @@
+/*
+ * Copyright (c) 2005-2016 Vincent Vandenschrick. All rights reserved.
+ *
+ *  This file is part of the Jspresso framework.
+ *
+ *  Jspresso is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Jspresso is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with Jspresso.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jspresso.beandocbook;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.DocumentationTool;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+/**
+ * Programmatic entry point generating the bean documentation by running the
+ * javadoc tool in-process, through {@link DocumentationTool}. It is
+ * configured with typed config sets instead of the
+ * <code>-rootClassName_&lt;set&gt;</code> style options, and can be run any
+ * number of times from a long-lived JVM, e.g. a build daemon, so that the
+ * doclet stays loaded and compiled across runs. Runs are serialized within a
+ * JVM, the javadoc tool not being documented as thread-safe. Requires a Java
+ * 8 JDK.
+ * <pre>
+ * BeanDocGenerator generator = new BeanDocGenerator();
+ * generator.setSourcePath(Arrays.asList(new File("src/main/java")));
+ * generator.setSubpackages(Arrays.asList("org.jspresso.framework"));
+ * generator.setOutputDir(new File("target/docbook"));
+ * generator.setConfigSets(Arrays.asList(new BeanDocConfigSet("views", "org.jspresso.framework.view.descriptor.IViewDescriptor")));
+ * generator.generate();
+ * </pre>
+ *
+ * @version $LastChangedRevision: 3701 $
+ * @author Vincent Vandenschrick
+ */
+public class BeanDocGenerator {
+
+  private static final Object LOCK = new Object();
+
+  private Class<?>               docletClass       = BeanDocbookDoclet.class;
+  private List<File>             sourcePath        = new ArrayList<File>();
+  private List<File>             classPath         = new ArrayList<File>();
+  private List<String>           subpackages       = new ArrayList<String>();
+  private List<File>             sourceFiles       = new ArrayList<File>();
+  private String                 encoding;
+  private File                   outputDir;
+  private String                 apidocUrl;
+  private List<BeanDocConfigSet> configSets        = new ArrayList<BeanDocConfigSet>();
+  private List<String>           formats           = new ArrayList<String>();
+  private int                    workers           = 1;
+  private int                    sectionWorkers    = 1;
+  private boolean                lazyHierarchy;
+  private boolean                fragmentCache;
+  private boolean                chunkedOutput;
+  private boolean                asyncOutput;
+  private File                   stylesheet;
+  private File                   snapshot;
+  private File                   perfReport;
+  private List<String>           additionalOptions = new ArrayList<String>();
+  private Writer                 out;
+
+  /**
+   * Sets the doclet class, <code>BeanDocbookDoclet</code> by default.
+   *
+   * @param docletClass
+   *          the doclet class to set.
+   */
+  public void setDocletClass(Class<? extends AbstractBeanDoclet> docletClass) {
+    this.docletClass = docletClass;
+  }
+
+  /**
+   * Sets the source path javadoc reads the sources from.
+   *
+   * @param sourcePath
+   *          the source directories to set.
+   */
+  public void setSourcePath(List<File> sourcePath) {
+    this.sourcePath = sourcePath;
+  }
+
+  /**
+   * Sets the class path of the documented sources.
+   *
+   * @param classPath
+   *          the class path entries to set.
+   */
+  public void setClassPath(List<File> classPath) {
+    this.classPath = classPath;
+  }
+
+  /**
+   * Sets the packages documented along with their subpackages, read from the
+   * source path.
+   *
+   * @param subpackages
+   *          the package names to set.
+   */
+  public void setSubpackages(List<String> subpackages) {
+    this.subpackages = subpackages;
+  }
+
+  /**
+   * Sets individual source files to document.
+   *
+   * @param sourceFiles
+   *          the source files to set.
+   */
+  public void setSourceFiles(List<File> sourceFiles) {
+    this.sourceFiles = sourceFiles;
+  }
+
+  /**
+   * Sets the encoding of the sources.
+   *
+   * @param encoding
+   *          the encoding to set.
+   */
+  public void setEncoding(String encoding) {
+    this.encoding = encoding;
+  }
+
+  /**
+   * Sets the directory where the documents are written.
+   *
+   * @param outputDir
+   *          the output directory to set.
+   */
+  public void setOutputDir(File outputDir) {
+    this.outputDir = outputDir;
+  }
+
+  /**
+   * Sets the base URL of the published javadoc.
+   *
+   * @param apidocUrl
+   *          the URL to set.
+   */
+  public void setApidocUrl(String apidocUrl) {
+    this.apidocUrl = apidocUrl;
+  }
+
+  /**
+   * Sets the config sets, one document being generated per config set.
+   *
+   * @param configSets
+   *          the config sets to set.
+   */
+  public void setConfigSets(List<BeanDocConfigSet> configSets) {
+    this.configSets = configSets;
+  }
+
+  /**
+   * Sets the formats generated by the <code>BeanMultiFormatDoclet</code>
+   * doclet.
+   *
+   * @param formats
+   *          the formats to set, <code>docbook</code>, <code>markdown</code>
+   *          or doclet class names.
+   */
+  public void setFormats(List<String> formats) {
+    this.formats = formats;
+  }
+
+  /**
+   * Sets the number of config sets generated concurrently.
+   *
+   * @param workers
+   *          the number of workers to set, 0 for one per core.
+   */
+  public void setWorkers(int workers) {
+    this.workers = workers;
+  }
+
+  /**
+   * Sets the number of class sections of a document rendered concurrently.
+   *
+   * @param sectionWorkers
+   *          the number of section workers to set, 0 for one per core.
+   */
+  public void setSectionWorkers(int sectionWorkers) {
+    this.sectionWorkers = sectionWorkers;
+  }
+
+  /**
+   * Sets whether only the part of the class hierarchy reachable from the
+   * root classes is materialized.
+   *
+   * @param lazyHierarchy
+   *          the lazyHierarchy to set.
+   */
+  public void setLazyHierarchy(boolean lazyHierarchy) {
+    this.lazyHierarchy = lazyHierarchy;
+  }
+
+  /**
+   * Sets whether the rendered class sections are cached across runs.
+   *
+   * @param fragmentCache
+   *          the fragmentCache to set.
+   */
+  public void setFragmentCache(boolean fragmentCache) {
+    this.fragmentCache = fragmentCache;
+  }
+
+  /**
+   * Sets whether each class section is written to its own file, the
+   * documents only referencing them.
+   *
+   * @param chunkedOutput
+   *          the chunkedOutput to set.
+   */
+  public void setChunkedOutput(boolean chunkedOutput) {
+    this.chunkedOutput = chunkedOutput;
+  }
+
+  /**
+   * Sets whether each output is written by a dedicated I/O thread.
+   *
+   * @param asyncOutput
+   *          the asyncOutput to set.
+   */
+  public void setAsyncOutput(boolean asyncOutput) {
+    this.asyncOutput = asyncOutput;
+  }
+
+  /**
+   * Sets the stylesheet the DocBook structure is streamed through.
+   *
+   * @param stylesheet
+   *          the stylesheet to set.
+   */
+  public void setStylesheet(File stylesheet) {
+    this.stylesheet = stylesheet;
+  }
+
+  /**
+   * Sets the snapshot file also written by the run.
+   *
+   * @param snapshot
+   *          the snapshot to set.
+   */
+  public void setSnapshot(File snapshot) {
+    this.snapshot = snapshot;
+  }
+
+  /**
+   * Sets the JSON performance report also written by the run.
+   *
+   * @param perfReport
+   *          the performance report to set.
+   */
+  public void setPerfReport(File perfReport) {
+    this.perfReport = perfReport;
+  }
+
+  /**
+   * Sets additional javadoc or doclet options, e.g. <code>-quiet</code> or
+   * <code>-fragmentCacheMaxSize</code>.
+   *
+   * @param additionalOptions
+   *          the options to set.
+   */
+  public void setAdditionalOptions(List<String> additionalOptions) {
+    this.additionalOptions = additionalOptions;
+  }
+
+  /**
+   * Sets the writer the javadoc messages are written to, the standard error
+   * by default.
+   *
+   * @param out
+   *          the writer to set.
+   */
+  public void setOut(Writer out) {
+    this.out = out;
+  }
+
+  /**
+   * Gets the doclet options of the configured run, excluding the javadoc
+   * options driving the source parsing.
+   *
+   * @return the doclet options.
+   */
+  public List<String> getDocletOptions() {
+    List<String> options = new ArrayList<String>();
+    if (outputDir != null) {
+      options.add("-outputDir");
+      options.add(outputDir.getPath());
+    }
+    if (apidocUrl != null) {
+      options.add("-apidocUrl");
+      options.add(apidocUrl);
+    }
+    for (BeanDocConfigSet configSet : configSets) {
+      configSet.appendOptions(options);
+    }
+    if (!formats.isEmpty()) {
+      options.add("-formats");
+      options.add(join(formats, ":"));
+    }
+    if (workers != 1) {
+      options.add("-workers");
+      options.add(Integer.toString(workers));
+    }
+    if (sectionWorkers != 1) {
+      options.add("-sectionWorkers");
+      options.add(Integer.toString(sectionWorkers));
+    }
+    if (lazyHierarchy) {
+      options.add("-lazyHierarchy");
+    }
+    if (fragmentCache) {
+      options.add("-fragmentCache");
+    }
+    if (chunkedOutput) {
+      options.add("-chunkedOutput");
+    }
+    if (asyncOutput) {
+      options.add("-asyncOutput");
+    }
+    if (stylesheet != null) {
+      options.add("-stylesheet");
+      options.add(stylesheet.getPath());
+    }
+    if (snapshot != null) {
+      options.add("-snapshot");
+      options.add(snapshot.getPath());
+    }
+    if (perfReport != null) {
+      options.add("-perfReport");
+      options.add(perfReport.getPath());
+    }
+    options.addAll(additionalOptions);
+    return options;
+  }
+
+  /**
+   * Runs javadoc in-process with the configured doclet.
+   *
+   * @return true if javadoc and the doclet succeeded.
+   * @throws IOException
+   *           whenever an I/O exception occurs.
+   */
+  public boolean generate() throws IOException {
+    DocumentationTool tool = getDocumentationTool();
+    if (tool == null) {
+      throw new IllegalStateException("The javadoc tool is not available, a JDK is required");
+    }
+    List<String> options = new ArrayList<String>();
+    if (encoding != null) {
+      options.add("-encoding");
+      options.add(encoding);
+    }
+    if (!subpackages.isEmpty()) {
+      options.add("-subpackages");
+      options.add(join(subpackages, ":"));
+    }
+    options.addAll(getDocletOptions());
+    StandardJavaFileManager fileManager = tool.getStandardFileManager(null, null, encoding != null ? Charset.forName(
+        encoding) : null);
+    try {
+      if (!sourcePath.isEmpty()) {
+        fileManager.setLocation(StandardLocation.SOURCE_PATH, sourcePath);
+      }
+      if (!classPath.isEmpty()) {
+        fileManager.setLocation(StandardLocation.CLASS_PATH, classPath);
+      }
+      Iterable<? extends JavaFileObject> compilationUnits;
+      if (sourceFiles.isEmpty()) {
+        compilationUnits = Collections.emptyList();
+      } else {
+        compilationUnits = fileManager.getJavaFileObjectsFromFiles(sourceFiles);
+      }
+      synchronized (LOCK) {
+        return tool.getTask(out, fileManager, null, docletClass, options, compilationUnits).call();
+      }
+    } finally {
+      fileManager.close();
+    }
+  }
+
+  /**
+   * Gets a doclet class by name.
+   *
+   * @param doclet
+   *          <code>docbook</code>, <code>markdown</code>,
+   *          <code>multiformat</code> or a doclet class name.
+   * @return the doclet class.
+   * @throws ClassNotFoundException
+   *           if the doclet class cannot be found.
+   */
+  public static Class<? extends AbstractBeanDoclet> getDocletClass(String doclet) throws ClassNotFoundException {
+    if ("docbook".equalsIgnoreCase(doclet)) {
+      return BeanDocbookDoclet.class;
+    } else if ("markdown".equalsIgnoreCase(doclet)) {
+      return BeanMarkdownDoclet.class;
+    } else if ("multiformat".equalsIgnoreCase(doclet)) {
+      return BeanMultiFormatDoclet.class;
+    }
+    return Class.forName(doclet).asSubclass(AbstractBeanDoclet.class);
+  }
+
+  /**
+   * Gets the javadoc tool, preferably the one visible to the doclet, so that
+   * both share the same javadoc API classes, e.g. when this class is loaded
+   * by an isolated class loader of a build tool along with tools.jar.
+   *
+   * @return the javadoc tool or null if none is available.
+   */
+  private static DocumentationTool getDocumentationTool() {
+    try {
+      return (DocumentationTool) Class.forName("com.sun.tools.javadoc.api.JavadocTool", true,
+          AbstractBeanDoclet.class.getClassLoader()).newInstance();
+    } catch (Exception ex) {
+      // Not visible to the doclet.
+      return ToolProvider.getSystemDocumentationTool();
+    }
+  }
+
+  static String join(List<?> elements, String separator) {
+    StringBuilder buff = new StringBuilder();
+    for (Object element : elements) {
+      if (buff.length() > 0) {
+        buff.append(separator);
+      }
+      buff.append(element);
+    }
+    return buff.toString();
+  }
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright (c) 2005-2016 Vincent Vandenschrick. All rights reserved.
+ *
+ *  This file is part of the Jspresso framework.
+ *
+ *  Jspresso is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Jspresso is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with Jspresso.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jspresso.beandocbook;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watch mode, generating the bean documentation again whenever a source
+ * changes. The generation runs in-process through a {@link BeanDocGenerator}
+ * that stays warm across runs, with the fragment cache enabled : the
+ * javadoc model is parsed again, but only the class sections whose
+ * fingerprint changed, i.e. the edited classes and the ones listing them as
+ * super or sub-type, are rendered again, and only the outputs that changed
+ * are rewritten. The whole source set is still parsed by javadoc on each
+ * change though, the doclet API offering no way to parse only the changed
+ * sources, so the latency of a run remains bounded by a full javadoc parse.
+ * Bursts of file events are coalesced, and saves that do not change the
+ * content of a source are ignored. A failed run is reported and watching
+ * goes on. Usage :
+ * <pre>
+ * java org.jspresso.beandocbook.BeanDocWatcher -sourcepath &lt;dirs&gt; -subpackages &lt;packages&gt;
+ *   [-classpath &lt;path&gt;] [-encoding &lt;encoding&gt;] [-doclet &lt;doclet&gt;] [-quiet] [doclet options]
+ * </pre>
+ *
+ * @version $LastChangedRevision: 3701 $
+ * @author Vincent Vandenschrick
+ */
+public class BeanDocWatcher {
+
+  private static final long   QUIET_PERIOD     = 100;
+  private static final String SOURCE_EXTENSION = ".java";
+  private static final String SOURCE_DIGEST    = "SHA-1";
+
+  private final BeanDocGenerator    generator;
+  private final List<File>          sourceRoots;
+  private final Map<WatchKey, Path> watchedDirs;
+  private final Map<Path, String>   sourceDigests;
+  private WatchService              watchService;
+
+  /**
+   * Constructs a new <code>BeanDocWatcher</code> instance.
+   *
+   * @param generator
+   *          the generator, whose fragment cache gets enabled.
+   * @param sourceRoots
+   *          the source directories to watch.
+   */
+  public BeanDocWatcher(BeanDocGenerator generator, List<File> sourceRoots) {
+    this.generator = generator;
+    this.sourceRoots = sourceRoots;
+    this.watchedDirs = new HashMap<WatchKey, Path>();
+    this.sourceDigests = new HashMap<Path, String>();
+    generator.setFragmentCache(true);
+  }
+
+  /**
+   * Runs the watch mode. It generates the documentation, then generates it
+   * again on each source change, until {@link #close()} is called.
+   *
+   * @throws IOException
+   *           whenever an I/O exception occurs.
+   * @throws InterruptedException
+   *           if the thread is interrupted.
+   */
+  public void run() throws IOException, InterruptedException {
+    synchronized (this) {
+      watchService = FileSystems.getDefault().newWatchService();
+    }
+    for (File sourceRoot : sourceRoots) {
+      register(sourceRoot.toPath());
+    }
+    generate();
+    try {
+      while (true) {
+        Set<Path> changedPaths = new HashSet<Path>();
+        boolean overflow = collect(watchService.take(), changedPaths);
+        WatchKey key;
+        while ((key = watchService.poll(QUIET_PERIOD, TimeUnit.MILLISECONDS)) != null) {
+          overflow |= collect(key, changedPaths);
+        }
+        boolean sourcesChanged = updateDigests(changedPaths);
+        if (overflow || sourcesChanged) {
+          generate();
+        }
+      }
+    } catch (ClosedWatchServiceException ex) {
+      // Closed, stops watching.
+    }
+  }
+
+  /**
+   * Stops watching.
+   *
+   * @throws IOException
+   *           whenever an I/O exception occurs.
+   */
+  public synchronized void close() throws IOException {
+    if (watchService != null) {
+      watchService.close();
+    }
+  }
+
+  private void generate() {
+    long start = System.currentTimeMillis();
+    try {
+      boolean success = generator.generate();
+      System.err.println((success ? "Generated in " : "Failed in ") + (System.currentTimeMillis() - start) + " ms");
+    } catch (IOException | RuntimeException ex) {
+      // Keeps watching, the next change may fix it.
+      System.err.println("Failed in " + (System.currentTimeMillis() - start) + " ms : " + ex);
+    }
+  }
+
+  /**
+   * Watches a directory tree, digesting the sources found.
+   *
+   * @param root
+   *          the root of the directory tree.
+   * @throws IOException
+   *           whenever an I/O exception occurs.
+   */
+  private void register(Path root) throws IOException {
+    Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+        watchedDirs.put(dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE), dir);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+        if (isSource(file)) {
+          sourceDigests.put(file, digest(file));
+        }
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  /**
+   * Collects the sources changed according to the events of a watch key.
+   *
+   * @param key
+   *          the signalled key.
+   * @param changedPaths
+   *          the changed sources to add to.
+   * @return true if events were lost or a directory appeared, so that the
+   * changes are not known precisely.
+   * @throws IOException
+   *           whenever an I/O exception occurs.
+   */
+  private boolean collect(WatchKey key, Set<Path> changedPaths) throws IOException {
+    boolean unknownChanges = false;
+    Path dir = watchedDirs.get(key);
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == StandardWatchEventKinds.OVERFLOW || dir == null) {
+        unknownChanges = true;
+        continue;
+      }
+      Path path = dir.resolve((Path) event.context());
+      if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+        register(path);
+        unknownChanges = true;
+      } else if (isSource(path)) {
+        changedPaths.add(path);
+      } else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE && !sourceDigests.containsKey(path)) {
+        // Possibly a deleted directory, its sources are checked again.
+        for (Path source : new ArrayList<Path>(sourceDigests.keySet())) {
+          if (source.startsWith(path)) {
+            changedPaths.add(source);
+          }
+        }
+      }
+    }
+    if (!key.reset()) {
+      watchedDirs.remove(key);
+    }
+    return unknownChanges;
+  }
+
+  /**
+   * Updates the digests of changed sources.
+   *
+   * @param changedPaths
+   *          the sources signalled as changed.
+   * @return true if the content of a source actually changed.
+   * @throws IOException
+   *           whenever an I/O exception occurs.
+   */
+  private boolean updateDigests(Set<Path> changedPaths) throws IOException {
+    boolean changed = false;
+    for (Path path : changedPaths) {
+      String digest = Files.isRegularFile(path) ? digest(path) : null;
+      String previousDigest = digest != null ? sourceDigests.put(path, digest) : sourceDigests.remove(path);
+      if (digest == null ? previousDigest != null : !digest.equals(previousDigest)) {
+        changed = true;
+      }
+    }
+    return changed;
+  }
+
+  private static boolean isSource(Path path) {
+    return path.getFileName().toString().endsWith(SOURCE_EXTENSION);
+  }
+
+  private static String digest(Path file) throws IOException {
+    byte[] content;
+    try {
+      content = Files.readAllBytes(file);
+    } catch (IOException ex) {
+      // Deleted or being written, the next event tells.
+      return null;
+    }
+    try {
+      return new BigInteger(1, MessageDigest.getInstance(SOURCE_DIGEST).digest(content)).toString(16);
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IOException(ex);
+    }
+  }
+
+  /**
+   * Runs the watch mode from the command line.
+   *
+   * @param args
+   *          the command line arguments.
+   * @throws Exception
+   *           whenever the watch mode cannot run.
+   */
+  public static void main(String[] args) throws Exception {
+    BeanDocGenerator generator = new BeanDocGenerator();
+    List<File> sourcePath = new ArrayList<File>();
+    List<String> docletOptions = new ArrayList<String>();
+    String subpackages = null;
+    for (int i = 0; i < args.length; i++) {
+      String arg = args[i];
+      if (i + 1 < args.length && arg.equals("-sourcepath")) {
+        for (String sourceDir : args[++i].split(File.pathSeparator)) {
+          sourcePath.add(new File(sourceDir));
+        }
+      } else if (i + 1 < args.length && arg.equals("-classpath")) {
+        List<File> classPath = new ArrayList<File>();
+        for (String classPathElement : args[++i].split(File.pathSeparator)) {
+          classPath.add(new File(classPathElement));
+        }
+        generator.setClassPath(classPath);
+      } else if (i + 1 < args.length && arg.equals("-subpackages")) {
+        subpackages = args[++i];
+      } else if (i + 1 < args.length && arg.equals("-encoding")) {
+        generator.setEncoding(args[++i]);
+      } else if (i + 1 < args.length && arg.equals("-doclet")) {
+        generator.setDocletClass(BeanDocGenerator.getDocletClass(args[++i]));
+      } else if (arg.equals("-quiet")) {
+        docletOptions.add(arg);
+      } else {
+        int length = AbstractBeanDoclet.optionLength(arg);
+        if (length == 0 || i + length > args.length) {
+          usage("Invalid option " + arg);
+          return;
+        }
+        docletOptions.addAll(Arrays.asList(args).subList(i, i + length));
+        i += length - 1;
+      }
+    }
+    if (sourcePath.isEmpty() || subpackages == null) {
+      usage("Missing -sourcepath or -subpackages option");
+      return;
+    }
+    generator.setSourcePath(sourcePath);
+    generator.setSubpackages(Arrays.asList(subpackages.split(":")));
+    generator.setAdditionalOptions(docletOptions);
+    new BeanDocWatcher(generator, sourcePath).run();
+  }
+
+  private static void usage(String message) {
+    System.err.println(message);
+    System.err.println("Usage : " + BeanDocWatcher.class.getName()
+        + " -sourcepath <dirs> -subpackages <packages> [-classpath <path>] [-encoding <encoding>]"
+        + " [-doclet docbook|markdown|multiformat|<class>] [-quiet] [doclet options]");
+    System.exit(2);
+  }
+}
@@ -18,29 +18,57 @@
  */
 package org.jspresso.beandocbook;
 
+import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.xml.sax.ContentHandler;
 
 import com.sun.javadoc.ClassDoc;
 import com.sun.javadoc.MethodDoc;
-import com.sun.javadoc.Parameter;
-import com.sun.javadoc.ParameterizedType;
 import com.sun.javadoc.RootDoc;
-import com.sun.javadoc.Type;
 
 /**
- * A simple doclet to generate docbook from javadoc information.
+ * A simple doclet to generate docbook from javadoc information. The DocBook
+ * structure is sent to a {@link DocbookSink}, that writes it as text by
+ * default or streams it as SAX events through the <code>-stylesheet</code>
+ * transformation, or any content handler returned by
+ * {@link #createContentHandler(OutputStream)}.
  *
  * @version $LastChangedRevision: 3701 $
  * @author Vincent Vandenschrick
  */
-public class BeanDocbookDoclet extends AbstractBeanDoclet {
+public class BeanDocbookDoclet extends AbstractBeanFormatDoclet {
 
-  private int indent;
+  private static final Map<String, Templates> TEMPLATES = new ConcurrentHashMap<String, Templates>();
+  private static final EncodedMarkup[]        INDENTS   = new EncodedMarkup[16];
+  private static final EncodedMarkup          NEW_LINE  = new EncodedMarkup("\n");
+  private static final String                 XINCLUDE  = "http://www.w3.org/2001/XInclude";
+
+  static {
+    StringBuilder indentPrefix = new StringBuilder();
+    for (int i = 0; i < INDENTS.length; i++) {
+      INDENTS[i] = new EncodedMarkup(indentPrefix.toString());
+      indentPrefix.append("  ");
+    }
+  }
+
+  private final DocbookSink textSink = new TextSink();
+  private DocbookSink       sink     = textSink;
+  private int               indent;
 
   /**
    * Generate docbook part documenting beans.
@@ -56,25 +84,73 @@ public class BeanDocbookDoclet extends AbstractBeanDoclet {
 
   @Override
   protected void writeHeader() throws IOException {
-    writeLine("<?xml version='1.0' encoding='UTF-8'?>");
-    writeLine("<!DOCTYPE chapter PUBLIC '-//OASIS//DTD DocBook XML V4.4//EN'");
-    writeLine("  'http://www.oasis-open.org/docbook/xml/4.4/docbookx.dtd'>");
+    ContentHandler contentHandler = createContentHandler(getOutputStream());
+    if (contentHandler != null) {
+      sink = new SaxDocbookSink(contentHandler);
+    } else {
+      sink = textSink;
+    }
+    sink.startDocument();
+  }
+
+  @Override
+  protected void writeFooter() throws IOException {
+    sink.endDocument();
   }
 
   /**
-   * Write line.
+   * Creates the content handler the DocBook events of an output are streamed
+   * to. The default is a transformer handler applying the
+   * <code>-stylesheet</code> option, if any.
    *
-   * @param content
-   *     the content
+   * @param out
+   *          the output stream of the output.
+   * @return the content handler or null to write DocBook text.
    * @throws IOException
-   *     the iO exception
+   *           if the content handler cannot be created.
    */
-  @Override
-  protected void writeLine(String content) throws IOException {
-    for (int i = 0; i < indent; i++) {
-      writer.write("  ");
+  protected ContentHandler createContentHandler(OutputStream out) throws IOException {
+    if (getStylesheet() == null) {
+      return null;
     }
-    super.writeLine(content);
+    try {
+      SAXTransformerFactory factory = (SAXTransformerFactory) TransformerFactory.newInstance();
+      File stylesheetFile = new File(getStylesheet()).getAbsoluteFile();
+      String key = stylesheetFile.getPath() + "|" + stylesheetFile.lastModified();
+      Templates templates = TEMPLATES.get(key);
+      if (templates == null) {
+        templates = factory.newTemplates(new StreamSource(stylesheetFile));
+        // Evicts the previous versions of the stylesheet, e.g. in a long-lived JVM.
+        for (Iterator<String> keys = TEMPLATES.keySet().iterator(); keys.hasNext(); ) {
+          if (keys.next().startsWith(stylesheetFile.getPath() + "|")) {
+            keys.remove();
+          }
+        }
+        TEMPLATES.put(key, templates);
+      }
+      TransformerHandler transformerHandler = factory.newTransformerHandler(templates);
+      transformerHandler.setResult(new StreamResult(out));
+      return transformerHandler;
+    } catch (TransformerConfigurationException ex) {
+      throw new IOException("Could not load stylesheet " + getStylesheet(), ex);
+    }
+  }
+
+  @Override
+  protected boolean isRenderingTextFragments() {
+    return sink == textSink;
+  }
+
+  @Override
+  protected String getFragmentContextKey() {
+    return Integer.toString(indent);
+  }
+
+  @Override
+  protected AbstractBeanFormatDoclet createFragmentContext() {
+    BeanDocbookDoclet context = (BeanDocbookDoclet) super.createFragmentContext();
+    context.indent = indent;
+    return context;
   }
 
   @Override
@@ -84,20 +160,34 @@ public class BeanDocbookDoclet extends AbstractBeanDoclet {
   }
 
   /**
-   * Write section.
+   * Open root section.
    *
    * @param rootClassTree the root class tree
    * @throws IOException the iO exception
    */
   @Override
-  protected void writeRootSection(ClassTree rootClassTree) throws IOException {
-    writeLine("<section>");
-    writeLine("<title>Reference for " + rootClassTree.getRoot().name() + " hierarchy</title>");
+  protected void openRootSection(ClassTree rootClassTree) throws IOException {
+    sink.startElement("section");
+    sink.endLine();
+    sink.startElement("title");
+    sink.characters("Reference for " + rootClassTree.getRoot().name() + " hierarchy");
+    sink.endElement("title");
+    sink.endLine();
     indent++;
-    writeLine("<para></para>");
-    processClassTree(rootClassTree);
+    writeEmptyPara();
+  }
+
+  /**
+   * Close root section.
+   *
+   * @param rootClassTree the root class tree
+   * @throws IOException the iO exception
+   */
+  @Override
+  protected void closeRootSection(ClassTree rootClassTree) throws IOException {
     indent--;
-    writeLine("</section>");
+    sink.endElement("section");
+    sink.endLine();
   }
 
   /**
@@ -109,9 +199,10 @@ public class BeanDocbookDoclet extends AbstractBeanDoclet {
    */
   @Override
   protected void writeClassSection(ClassTree classTree, ClassDoc classDoc) throws IOException {
-    writeLine("<section id='" + classDoc.qualifiedTypeName() + "'>");
+    sink.startElement("section", "id", classDoc.qualifiedTypeName());
+    sink.endLine();
     indent++;
-    processClassDoc(classTree);
+    renderClassDoc(classTree);
   }
 
   /**
@@ -121,10 +212,38 @@ public class BeanDocbookDoclet extends AbstractBeanDoclet {
    */
   @Override
   protected void closeClassSection() throws IOException {
-    writeLine("<para></para>");
-    writeLine("<para></para>");
+    writeEmptyPara();
+    writeEmptyPara();
     indent--;
-    writeLine("</section>");
+    sink.endElement("section");
+    sink.endLine();
+  }
+
+  /**
+   * Starts a chunk as a standalone DocBook section document.
+   *
+   * @param classTree the class tree of the chunk
+   * @throws IOException the iO exception
+   */
+  @Override
+  protected void openChunk(ClassTree classTree) throws IOException {
+    indent = 0;
+    writeLine("<?xml version='1.0' encoding='UTF-8'?>");
+    writeLine("<!DOCTYPE section PUBLIC '-//OASIS//DTD DocBook XML V4.4//EN'");
+    writeLine("  'http://www.oasis-open.org/docbook/xml/4.4/docbookx.dtd'>");
+  }
+
+  /**
+   * Includes a chunk in place of its class section through XInclude.
+   *
+   * @param classTree the class tree of the chunk
+   * @param href the chunk file, relative to the output file
+   * @throws IOException the iO exception
+   */
+  @Override
+  protected void writeChunkReference(ClassTree classTree, String href) throws IOException {
+    sink.emptyElement("xi:include", "href", href, "xmlns:xi", XINCLUDE);
+    sink.endLine();
   }
 
   /**
@@ -136,22 +255,17 @@ public class BeanDocbookDoclet extends AbstractBeanDoclet {
    */
   @Override
   protected String javadocToDoc(String source) {
-    String dbSource = source.replaceAll("<p>", "</para><para>");
-    dbSource = dbSource.replaceAll("<br>", "</para><para>");
-    dbSource = dbSource.replaceAll("<i>", "<emphasis>");
-    dbSource = dbSource.replaceAll("</i>", "</emphasis>");
-    dbSource = dbSource.replaceAll("<b>", "<emphasis role='bold'>");
-    dbSource = dbSource.replaceAll("</b>", "</emphasis>");
-    dbSource = dbSource.replaceAll("<ul>", "<itemizedlist>");
-    dbSource = dbSource.replaceAll("</ul>", "</itemizedlist>");
-    dbSource = dbSource.replaceAll("<ol>", "<orderedlist>");
-    dbSource = dbSource.replaceAll("</ol>", "</orderedlist>");
-    dbSource = dbSource.replaceAll("<li>", "<listitem><para>");
-    dbSource = dbSource.replaceAll("</li>", "</para></listitem>");
-    dbSource = dbSource.replaceAll("<pre>", "<programlisting>");
-    dbSource = dbSource.replaceAll("</pre>", "</programlisting>");
-    dbSource = dbSource.replaceAll("\\{@code ([^\\}]*)}", "<code>$1</code>");
-    return dbSource;
+    return JavadocTransducer.DOCBOOK.convert(source);
+  }
+
+  @Override
+  protected String createInternalLink(String qualifiedName, String label) {
+    return "<link linkend='" + qualifiedName + "'>" + label + "</link>";
+  }
+
+  @Override
+  protected String createExternalLink(String url, String label) {
+    return "<ulink url='" + url + "'>" + label + "</ulink>";
   }
 
   /**
@@ -165,71 +279,94 @@ public class BeanDocbookDoclet extends AbstractBeanDoclet {
   @Override
   protected void processClassDoc(ClassTree classTree) throws IOException {
     ClassDoc classDoc = classTree.getRoot();
-    writeLine("<title>" + classDoc.name() + "</title>");
-    // writeLine("<para>");
-    // writeLine("<?dbfo keep-with-next='always'?>");
-    // writeLine("</para>");
-    writeLine("<itemizedlist>");
+    sink.startElement("title");
+    sink.characters(classDoc.name());
+    sink.endElement("title");
+    sink.endLine();
+    sink.startElement("itemizedlist");
+    sink.endLine();
     indent++;
-    writeLine("<listitem><para><emphasis role='bold'>Full name</emphasis> : <code><ulink url='" + computeJavadocUrl(
-        classDoc.qualifiedTypeName()) + "'>" + hyphenateDottedString(classDoc.qualifiedTypeName())
-        + "</ulink></code></para></listitem>");
+    startListItem("Full name");
+    sink.startElement("code");
+    sink.startElement("ulink", "url", computeJavadocUrl(classDoc.qualifiedTypeName()));
+    sink.markup(hyphenateDottedString(classDoc.qualifiedTypeName()));
+    sink.endElement("ulink");
+    sink.endElement("code");
+    endListItem();
     if (classDoc.superclassType().qualifiedTypeName().startsWith("org.jspresso")) {
+      startListItem("Super-type");
+      sink.startElement("code");
       if (!isInternalOrDeprecated(classDoc.superclassType().asClassDoc())) {
-        writeLine("<listitem><para><emphasis role='bold'>Super-type</emphasis> : <code><link linkend='" + classDoc
-            .superclassType().qualifiedTypeName() + "'>" + classDoc.superclass().name()
-            + "</link></code></para></listitem>");
+        sink.startElement("link", "linkend", classDoc.superclassType().qualifiedTypeName());
+        sink.characters(classDoc.superclass().name());
+        sink.endElement("link");
       } else {
-        writeLine("<listitem><para><emphasis role='bold'>Super-type</emphasis> : <code>" + classDoc.superclass().name()
-            + "</code></para></listitem>");
+        sink.characters(classDoc.superclass().name());
       }
+      sink.endElement("code");
+      endListItem();
     }
     if (classTree.getSubclasses().size() > 0) {
-      StringBuffer buff = new StringBuffer();
-      List<ClassTree> children = new ArrayList<ClassTree>(classTree.getSubclasses());
-      Collections.sort(children);
+      startListItem("Sub-types");
       boolean first = true;
-      for (ClassTree subclassTree : children) {
-        if (!isInternalOrDeprecated(subclassTree.getRoot())) {
+      for (ClassTree subclassTree : classTree.getSortedSubclasses()) {
+        if (!isInternalOrDeprecated(subclassTree)) {
           if (!first) {
-            buff.append(", ");
+            sink.characters(", ");
           }
           first = false;
-          buff.append(
-              "<code><link linkend='" + subclassTree.getRoot().qualifiedTypeName() + "'>" + subclassTree.getRoot()
-                                                                                                        .name()
-                  + "</link></code>");
+          sink.startElement("code");
+          sink.startElement("link", "linkend", subclassTree.getRoot().qualifiedTypeName());
+          sink.characters(subclassTree.getRoot().name());
+          sink.endElement("link");
+          sink.endElement("code");
         }
       }
-      writeLine(
-          "<listitem><para><emphasis role='bold'>Sub-types</emphasis> : " + buff.toString() + "</para></listitem>");
+      endListItem();
     }
     indent--;
-    writeLine("</itemizedlist>");
-    writeLine("<para></para>");
-    writeLine("<para></para>");
-    writeLine("<para>" + javadocToDoc(classDoc.commentText()) + "</para>");
-    writeLine("<para></para>");
-    writeLine("<para></para>");
-    writeLine("<table colsep='0' rowsep='1' tabstyle='splitable' frame='topbot'>");
-    writeLine("<?dbfo keep-together='auto'?>");
+    sink.endElement("itemizedlist");
+    sink.endLine();
+    writeEmptyPara();
+    writeEmptyPara();
+    sink.startElement("para");
+    sink.markup(javadocToDoc(classDoc));
+    sink.endElement("para");
+    sink.endLine();
+    writeEmptyPara();
+    writeEmptyPara();
+    sink.startElement("table", "colsep", "0", "rowsep", "1", "tabstyle", "splitable", "frame", "topbot");
+    sink.endLine();
+    sink.processingInstruction("dbfo", "keep-together='auto'");
+    sink.endLine();
     indent++;
-    writeLine("<title>" + classDoc.name() + " properties</title>");
-    writeLine("<tgroup cols='2'>");
+    sink.startElement("title");
+    sink.characters(classDoc.name() + " properties");
+    sink.endElement("title");
+    sink.endLine();
+    sink.startElement("tgroup", "cols", "2");
+    sink.endLine();
     indent++;
-    writeLine("<colspec colname='property' colwidth='1*' />");
-    writeLine("<colspec colname='description' colwidth='2*' />");
-    writeLine("<thead>");
+    sink.emptyElement("colspec", "colname", "property", "colwidth", "1*");
+    sink.endLine();
+    sink.emptyElement("colspec", "colname", "description", "colwidth", "2*");
+    sink.endLine();
+    sink.startElement("thead");
+    sink.endLine();
     indent++;
-    writeLine("<row>");
+    sink.startElement("row");
+    sink.endLine();
     indent++;
-    writeLine("<entry align='left'>Property</entry>");
-    writeLine("<entry align='left'>Description</entry>");
+    writeEntry("Property", "align", "left");
+    writeEntry("Description", "align", "left");
     indent--;
-    writeLine("</row>");
+    sink.endElement("row");
+    sink.endLine();
     indent--;
-    writeLine("</thead>");
-    writeLine("<tbody>");
+    sink.endElement("thead");
+    sink.endLine();
+    sink.startElement("tbody");
+    sink.endLine();
     indent++;
     boolean atleastOneRow = false;
     Map<String, MethodDoc> propertiesMap = new TreeMap<String, MethodDoc>();
@@ -240,61 +377,79 @@ public class BeanDocbookDoclet extends AbstractBeanDoclet {
       }
     }
     for (Map.Entry<String, MethodDoc> propEntry : propertiesMap.entrySet()) {
-      writeLine("<row>");
+      sink.startElement("row");
+      sink.endLine();
       indent++;
-      Parameter param = propEntry.getValue().parameters()[0];
-      ParameterizedType pType = param.type().asParameterizedType();
-      StringBuilder typeBuff = new StringBuilder();
-      if (pType != null) {
-        Type[] typeArguments = pType.asParameterizedType().typeArguments();
-        if (param.type().qualifiedTypeName().startsWith("org.jspresso")) {
-          typeBuff.append("<ulink url='" + computeJavadocUrl(param.type().qualifiedTypeName()) + "'>"
-              + hyphenateCamelCase(param.type().simpleTypeName()) + "</ulink>");
-        } else {
-          typeBuff.append(hyphenateCamelCase(param.type().simpleTypeName()));
-        }
-        typeBuff.append("&#x200B;&lt;&#x200B;");
-        for (int i = 0; i < typeArguments.length; i++) {
-          if (typeArguments[i].qualifiedTypeName().startsWith("org.jspresso")) {
-            typeBuff.append("<ulink url='" + computeJavadocUrl(typeArguments[i].qualifiedTypeName()) + "'>"
-                + hyphenateCamelCase(typeArguments[i].simpleTypeName()) + "</ulink>");
-          } else {
-            typeBuff.append(typeArguments[i].simpleTypeName());
-          }
-          if (i < typeArguments.length - 1) {
-            typeBuff.append("&#x200B;,");
-          }
-        }
-        typeBuff.append("&#x200B;&gt;&#x200B;");
-      } else {
-        if (param.type().qualifiedTypeName().startsWith("org.jspresso")) {
-          typeBuff.append("<ulink url='" + computeJavadocUrl(param.type().qualifiedTypeName()) + "'>"
-              + hyphenateCamelCase(param.type().simpleTypeName()) + "</ulink>");
-        } else {
-          typeBuff.append(hyphenateCamelCase(param.type().simpleTypeName()));
-        }
-      }
-      writeLine(
-          "<entry valign='middle'><para><emphasis role='bold'>" + propEntry.getKey() + "</emphasis></para><para><code>"
-              + typeBuff.toString() + "</code></para></entry>");
-      writeLine("<entry><para>" + javadocToDoc(propEntry.getValue().commentText()) + "</para></entry>");
+      String typeMarkup = renderType(propEntry.getValue().parameters()[0].type());
+      sink.startElement("entry", "valign", "middle");
+      sink.startElement("para");
+      sink.startElement("emphasis", "role", "bold");
+      sink.characters(propEntry.getKey());
+      sink.endElement("emphasis");
+      sink.endElement("para");
+      sink.startElement("para");
+      sink.startElement("code");
+      sink.markup(typeMarkup);
+      sink.endElement("code");
+      sink.endElement("para");
+      sink.endElement("entry");
+      sink.endLine();
+      sink.startElement("entry");
+      sink.startElement("para");
+      sink.markup(javadocToDoc(propEntry.getValue()));
+      sink.endElement("para");
+      sink.endElement("entry");
+      sink.endLine();
       indent--;
-      writeLine("</row>");
+      sink.endElement("row");
+      sink.endLine();
     }
     if (!atleastOneRow) {
-      writeLine("<row>");
+      sink.startElement("row");
+      sink.endLine();
       indent++;
-      writeLine(
-          "<entry namest='property' nameend='description'>This class does not have any specific property.</entry>");
+      writeEntry("This class does not have any specific property.", "namest", "property", "nameend", "description");
       indent--;
-      writeLine("</row>");
+      sink.endElement("row");
+      sink.endLine();
     }
     indent--;
-    writeLine("</tbody>");
+    sink.endElement("tbody");
+    sink.endLine();
     indent--;
-    writeLine("</tgroup>");
+    sink.endElement("tgroup");
+    sink.endLine();
     indent--;
-    writeLine("</table>");
+    sink.endElement("table");
+    sink.endLine();
+  }
+
+  private void writeEmptyPara() throws IOException {
+    sink.startElement("para");
+    sink.endElement("para");
+    sink.endLine();
+  }
+
+  private void writeEntry(String text, String... attributes) throws IOException {
+    sink.startElement("entry", attributes);
+    sink.characters(text);
+    sink.endElement("entry");
+    sink.endLine();
+  }
+
+  private void startListItem(String label) throws IOException {
+    sink.startElement("listitem");
+    sink.startElement("para");
+    sink.startElement("emphasis", "role", "bold");
+    sink.characters(label);
+    sink.endElement("emphasis");
+    sink.characters(" : ");
+  }
+
+  private void endListItem() throws IOException {
+    sink.endElement("para");
+    sink.endElement("listitem");
+    sink.endLine();
   }
 
   /**
@@ -304,7 +459,121 @@ public class BeanDocbookDoclet extends AbstractBeanDoclet {
    */
   @Override
   protected String getOutputExtension() {
+    if (getStylesheet() != null) {
+      return getStylesheetOutputExtension();
+    }
     return ".xml";
   }
 
+  /**
+   * Writes the DocBook structure as indented text through the doclet writer.
+   * Indent prefixes and plain tags are written in their pre-encoded form.
+   */
+  private final class TextSink implements DocbookSink {
+
+    private final Map<String, EncodedMarkup> startTags = new HashMap<String, EncodedMarkup>();
+    private final Map<String, EncodedMarkup> endTags   = new HashMap<String, EncodedMarkup>();
+    private boolean                          lineStarted;
+
+    @Override
+    public void startDocument() throws IOException {
+      writeLine("<?xml version='1.0' encoding='UTF-8'?>");
+      writeLine("<!DOCTYPE chapter PUBLIC '-//OASIS//DTD DocBook XML V4.4//EN'");
+      writeLine("  'http://www.oasis-open.org/docbook/xml/4.4/docbookx.dtd'>");
+    }
+
+    @Override
+    public void endDocument() {
+      // Nothing to close.
+    }
+
+    @Override
+    public void startElement(String name, String... attributes) throws IOException {
+      startLine();
+      if (attributes.length == 0) {
+        write(getTag(startTags, name, "<"));
+        return;
+      }
+      writer.write('<');
+      writer.write(name);
+      writeAttributes(attributes);
+      writer.write('>');
+    }
+
+    @Override
+    public void endElement(String name) throws IOException {
+      startLine();
+      write(getTag(endTags, name, "</"));
+    }
+
+    @Override
+    public void emptyElement(String name, String... attributes) throws IOException {
+      startLine();
+      writer.write('<');
+      writer.write(name);
+      writeAttributes(attributes);
+      writer.write(" />");
+    }
+
+    @Override
+    public void characters(String text) throws IOException {
+      startLine();
+      writer.write(text);
+    }
+
+    @Override
+    public void markup(String markup) throws IOException {
+      startLine();
+      writer.write(markup);
+    }
+
+    @Override
+    public void processingInstruction(String target, String data) throws IOException {
+      startLine();
+      writer.write("<?");
+      writer.write(target);
+      writer.write(' ');
+      writer.write(data);
+      writer.write("?>");
+    }
+
+    @Override
+    public void endLine() throws IOException {
+      startLine();
+      write(NEW_LINE);
+      lineStarted = false;
+    }
+
+    private void startLine() throws IOException {
+      if (!lineStarted) {
+        if (indent < INDENTS.length) {
+          write(INDENTS[indent]);
+        } else {
+          for (int i = 0; i < indent; i++) {
+            writer.write("  ");
+          }
+        }
+        lineStarted = true;
+      }
+    }
+
+    private EncodedMarkup getTag(Map<String, EncodedMarkup> tags, String name, String opening) {
+      EncodedMarkup markup = tags.get(name);
+      if (markup == null) {
+        markup = new EncodedMarkup(opening + name + ">");
+        tags.put(name, markup);
+      }
+      return markup;
+    }
+
+    private void writeAttributes(String... attributes) throws IOException {
+      for (int i = 0; i + 1 < attributes.length; i += 2) {
+        writer.write(' ');
+        writer.write(attributes[i]);
+        writer.write("='");
+        writer.write(attributes[i + 1]);
+        writer.write('\'');
+      }
+    }
+  }
 }
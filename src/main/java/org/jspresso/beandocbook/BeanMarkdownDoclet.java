@@ -19,18 +19,12 @@
 package org.jspresso.beandocbook;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
 import com.sun.javadoc.ClassDoc;
 import com.sun.javadoc.MethodDoc;
-import com.sun.javadoc.Parameter;
-import com.sun.javadoc.ParameterizedType;
 import com.sun.javadoc.RootDoc;
-import com.sun.javadoc.Type;
 
 /**
  * A simple doclet to generate markdown from javadoc information.
@@ -38,7 +32,33 @@ import com.sun.javadoc.Type;
  * @author Vincent Vandenschrick
  * @version $LastChangedRevision: 3701 $
  */
-public class BeanMarkdownDoclet extends AbstractBeanDoclet {
+public class BeanMarkdownDoclet extends AbstractBeanFormatDoclet {
+
+  private static final EncodedMarkup BLANK_LINES    = new EncodedMarkup("\n\n\n");
+  private static final EncodedMarkup TABLE_START    = new EncodedMarkup("<table>\n<caption>");
+  private static final EncodedMarkup TABLE_HEAD     = new EncodedMarkup(" properties</caption>\n"
+      + "<colgroup>\n"
+      + "<col width=\"33%\" />\n"
+      + "<col width=\"66%\" />\n"
+      + "</colgroup>\n"
+      + "<thead>\n"
+      + "<tr class=\"header\">\n"
+      + "<th align=\"left\">Property</th>\n"
+      + "<th align=\"left\">Description</th>\n"
+      + "</tr>\n"
+      + "</thead>\n"
+      + "<tbody>\n");
+  private static final EncodedMarkup ODD_ROW_START  = new EncodedMarkup("<tr class=\"odd\">\n");
+  private static final EncodedMarkup EVEN_ROW_START = new EncodedMarkup("<tr class=\"even\">\n");
+  private static final EncodedMarkup PROPERTY_START = new EncodedMarkup("<td align=\"left\"><p><strong>");
+  private static final EncodedMarkup PROPERTY_TYPE  = new EncodedMarkup("</strong></p><p><code>");
+  private static final EncodedMarkup PROPERTY_END   = new EncodedMarkup("</code></p></td>\n<td><p>");
+  private static final EncodedMarkup ROW_END        = new EncodedMarkup("</p></td>\n</tr>\n");
+  private static final EncodedMarkup NO_PROPERTY    = new EncodedMarkup("<tr>\n"
+      + "<td align=\"left\">This class does not have any specific property.</td>\n"
+      + "<td align=\"left\"></td>\n"
+      + "</tr>\n");
+  private static final EncodedMarkup TABLE_END      = new EncodedMarkup("</tbody>\n</table>\n\n---\n");
 
   /**
    * Generate markdown part documenting beans.
@@ -53,7 +73,7 @@ public class BeanMarkdownDoclet extends AbstractBeanDoclet {
   }
 
   /**
-   * Write section.
+   * Open root section.
    *
    * @param rootClassTree
    *     the root class tree
@@ -61,10 +81,9 @@ public class BeanMarkdownDoclet extends AbstractBeanDoclet {
    *     the iO exception
    */
   @Override
-  protected void writeRootSection(ClassTree rootClassTree) throws IOException {
+  protected void openRootSection(ClassTree rootClassTree) throws IOException {
     writeLine("## " + rootClassTree.getRoot().name());
     writeLine("");
-    processClassTree(rootClassTree);
   }
 
   /**
@@ -79,7 +98,7 @@ public class BeanMarkdownDoclet extends AbstractBeanDoclet {
    */
   @Override
   protected void writeClassSection(ClassTree classTree, ClassDoc classDoc) throws IOException {
-    processClassDoc(classTree);
+    renderClassDoc(classTree);
   }
 
   /**
@@ -94,6 +113,21 @@ public class BeanMarkdownDoclet extends AbstractBeanDoclet {
     writeLine("");
   }
 
+  /**
+   * Lists a chunk in place of its class section, linking to it.
+   *
+   * @param classTree
+   *     the class tree of the chunk
+   * @param href
+   *     the chunk file, relative to the output file
+   * @throws IOException
+   *     the iO exception
+   */
+  @Override
+  protected void writeChunkReference(ClassTree classTree, String href) throws IOException {
+    writeLine("+ " + createLink(classTree.getRoot().name(), href));
+  }
+
   /**
    * Javadoc to doc.
    *
@@ -103,8 +137,17 @@ public class BeanMarkdownDoclet extends AbstractBeanDoclet {
    */
   @Override
   protected String javadocToDoc(String source) {
-    String dbSource = source.replaceAll("\\{@code ([^\\}]*)}", "<code>$1</code>");
-    return dbSource;
+    return JavadocTransducer.HTML.convert(source);
+  }
+
+  @Override
+  protected String createInternalLink(String qualifiedName, String label) {
+    return createHtmlLink(label, getSectionLink(qualifiedName));
+  }
+
+  @Override
+  protected String createExternalLink(String url, String label) {
+    return createHtmlLink(label, url);
   }
 
   /**
@@ -125,47 +168,32 @@ public class BeanMarkdownDoclet extends AbstractBeanDoclet {
     if (classDoc.superclassType().qualifiedTypeName().startsWith("org.jspresso")) {
       if (!isInternalOrDeprecated(classDoc.superclassType().asClassDoc())) {
         writeLine("+ **Super-type** : " + createLink(classDoc.superclass().name(),
-            "#" + classDoc.superclassType().qualifiedTypeName()));
+            getSectionLink(classDoc.superclassType().qualifiedTypeName())));
       } else {
         writeLine("+ **Super-type** : `" + classDoc.superclass().name() + "`");
       }
     }
     if (classTree.getSubclasses().size() > 0) {
       StringBuffer buff = new StringBuffer();
-      List<ClassTree> children = new ArrayList<ClassTree>(classTree.getSubclasses());
-      Collections.sort(children);
       boolean first = true;
-      for (ClassTree subclassTree : children) {
-        if (!isInternalOrDeprecated(subclassTree.getRoot())) {
+      for (ClassTree subclassTree : classTree.getSortedSubclasses()) {
+        if (!isInternalOrDeprecated(subclassTree)) {
           if (!first) {
             buff.append(", ");
           }
           first = false;
-          buff.append(createLink(subclassTree.getRoot().name(), "#" + subclassTree.getRoot().qualifiedTypeName()));
+          buff.append(createLink(subclassTree.getRoot().name(), getSectionLink(subclassTree.getRoot()
+              .qualifiedTypeName())));
         }
       }
       writeLine("+ **Sub-types** : " + buff.toString());
     }
-    writeLine("");
-    writeLine("");
-    writeLine("");
-    writeLine(javadocToDoc(classDoc.commentText()));
-    writeLine("");
-    writeLine("");
-    writeLine("");
-    writeLine("<table>");
-    writeLine("<caption>" + classDoc.name() + " properties</caption>");
-    writeLine("<colgroup>");
-    writeLine("<col width=\"33%\" />");
-    writeLine("<col width=\"66%\" />");
-    writeLine("</colgroup>");
-    writeLine("<thead>");
-    writeLine("<tr class=\"header\">");
-    writeLine("<th align=\"left\">Property</th>");
-    writeLine("<th align=\"left\">Description</th>");
-    writeLine("</tr>");
-    writeLine("</thead>");
-    writeLine("<tbody>");
+    write(BLANK_LINES);
+    writeLine(javadocToDoc(classDoc));
+    write(BLANK_LINES);
+    write(TABLE_START);
+    writer.write(classDoc.name());
+    write(TABLE_HEAD);
     boolean atleastOneRow = false;
     Map<String, MethodDoc> propertiesMap = new TreeMap<String, MethodDoc>();
     for (MethodDoc methodDoc : classDoc.methods()) {
@@ -177,54 +205,35 @@ public class BeanMarkdownDoclet extends AbstractBeanDoclet {
     int row = 0;
     for (Map.Entry<String, MethodDoc> propEntry : propertiesMap.entrySet()) {
       row++;
-      writeLine("<tr class=\"" + (row % 2 == 0 ? "even" : "odd") + "\">");
-      Parameter param = propEntry.getValue().parameters()[0];
-      ParameterizedType pType = param.type().asParameterizedType();
-      StringBuilder typeBuff = new StringBuilder();
-      if (pType != null) {
-        Type[] typeArguments = pType.asParameterizedType().typeArguments();
-        if (param.type().qualifiedTypeName().startsWith("org.jspresso")) {
-          typeBuff.append(createHtmlLink(hyphenateCamelCase(param.type().simpleTypeName()), computeJavadocUrl(
-              param.type().qualifiedTypeName())));
-        } else {
-          typeBuff.append(hyphenateCamelCase(param.type().simpleTypeName()));
-        }
-        typeBuff.append("&#x200B;&lt;&#x200B;");
-        for (int i = 0; i < typeArguments.length; i++) {
-          if (typeArguments[i].qualifiedTypeName().startsWith("org.jspresso")) {
-            typeBuff.append(createHtmlLink(hyphenateCamelCase(typeArguments[i].simpleTypeName()), computeJavadocUrl(
-                typeArguments[i].qualifiedTypeName())));
-          } else {
-            typeBuff.append(typeArguments[i].simpleTypeName());
-          }
-          if (i < typeArguments.length - 1) {
-            typeBuff.append("&#x200B;,");
-          }
-        }
-        typeBuff.append("&#x200B;&gt;&#x200B;");
-      } else {
-        if (param.type().qualifiedTypeName().startsWith("org.jspresso")) {
-          typeBuff.append(createHtmlLink(hyphenateCamelCase(param.type().simpleTypeName()), computeJavadocUrl(
-              param.type().qualifiedTypeName())));
-        } else {
-          typeBuff.append(hyphenateCamelCase(param.type().simpleTypeName()));
-        }
-      }
-      writeLine("<td align=\"left\"><p><strong>" + propEntry.getKey() + "</strong></p><p><code>" + typeBuff.toString()
-              + "</code></p></td>");
-      writeLine("<td><p>" + javadocToDoc(propEntry.getValue().commentText()) + "</p></td>");
-      writeLine("</tr>");
+      write(row % 2 == 0 ? EVEN_ROW_START : ODD_ROW_START);
+      String typeMarkup = renderType(propEntry.getValue().parameters()[0].type());
+      write(PROPERTY_START);
+      writer.write(propEntry.getKey());
+      write(PROPERTY_TYPE);
+      writer.write(typeMarkup);
+      write(PROPERTY_END);
+      writer.write(javadocToDoc(propEntry.getValue()));
+      write(ROW_END);
     }
     if (!atleastOneRow) {
-      writeLine("<tr>");
-      writeLine("<td align=\"left\">This class does not have any specific property.</td>");
-      writeLine("<td align=\"left\"></td>");
-      writeLine("</tr>");
+      write(NO_PROPERTY);
     }
-    writeLine("</tbody>");
-    writeLine("</table>");
-    writeLine("");
-    writeLine("---");
+    write(TABLE_END);
+  }
+
+  /**
+   * Gets the link to the section of a class, in the chunk of the class when
+   * sections are chunked.
+   *
+   * @param qualifiedName
+   *     the qualified class name
+   * @return the section link
+   */
+  private String getSectionLink(String qualifiedName) {
+    if (isChunkedOutput()) {
+      return getChunkName(qualifiedName) + "#" + qualifiedName;
+    }
+    return "#" + qualifiedName;
   }
 
   private String createLink(String linkText, String linkEnd) {
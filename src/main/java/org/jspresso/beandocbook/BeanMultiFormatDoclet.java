@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2005-2016 Vincent Vandenschrick. All rights reserved.
+ *
+ *  This file is part of the Jspresso framework.
+ *
+ *  Jspresso is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Jspresso is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with Jspresso.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jspresso.beandocbook;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.sun.javadoc.ClassDoc;
+import com.sun.javadoc.RootDoc;
+
+/**
+ * A doclet generating several output formats out of a single traversal of
+ * each config set hierarchy. The formats are given by the <code>-formats</code>
+ * option as a colon-separated list of <code>docbook</code>,
+ * <code>markdown</code> or doclet class names, and default to DocBook and
+ * markdown.
+ *
+ * @author Vincent Vandenschrick
+ * @version $LastChangedRevision: 3701 $
+ */
+public class BeanMultiFormatDoclet extends AbstractBeanDoclet {
+
+  private static final String DEFAULT_FORMATS = "docbook:markdown";
+
+  private List<AbstractBeanFormatDoclet> renderers;
+
+  /**
+   * Generate all the formats documenting beans.
+   *
+   * @param root
+   *     the root doc.
+   * @return true if succesful.
+   */
+  public static boolean start(RootDoc root) {
+    AbstractBeanDoclet.setThreadInstance(new BeanMultiFormatDoclet());
+    return AbstractBeanDoclet.start(root);
+  }
+
+  /**
+   * Creates one renderer per output format, all sharing the config set
+   * state of this doclet.
+   *
+   * @return the renderers
+   */
+  @Override
+  protected List<AbstractBeanDoclet> createRenderers() {
+    renderers = new ArrayList<AbstractBeanFormatDoclet>();
+    for (Class<? extends AbstractBeanFormatDoclet> formatClass : getFormatClasses()) {
+      AbstractBeanFormatDoclet renderer = (AbstractBeanFormatDoclet) createRenderingContext(formatClass);
+      renderer.adoptConfigSetState(this);
+      renderers.add(renderer);
+    }
+    return new ArrayList<AbstractBeanDoclet>(renderers);
+  }
+
+  /**
+   * Gets the output extensions of all the formats.
+   *
+   * @return the output extensions
+   */
+  @Override
+  protected List<String> getOutputExtensions() {
+    List<String> outputExtensions = new ArrayList<String>();
+    for (Class<? extends AbstractBeanFormatDoclet> formatClass : getFormatClasses()) {
+      outputExtensions.add(createRenderingContext(formatClass).getOutputExtension());
+    }
+    return outputExtensions;
+  }
+
+  /**
+   * Gets the doclet classes of the requested formats.
+   *
+   * @return the format classes
+   */
+  private List<Class<? extends AbstractBeanFormatDoclet>> getFormatClasses() {
+    String formats = getFormats();
+    if (formats == null) {
+      formats = DEFAULT_FORMATS;
+    }
+    List<Class<? extends AbstractBeanFormatDoclet>> formatClasses =
+        new ArrayList<Class<? extends AbstractBeanFormatDoclet>>();
+    for (String format : formats.split(":")) {
+      format = format.trim();
+      if ("docbook".equalsIgnoreCase(format)) {
+        formatClasses.add(BeanDocbookDoclet.class);
+      } else if ("markdown".equalsIgnoreCase(format)) {
+        formatClasses.add(BeanMarkdownDoclet.class);
+      } else if (format.length() > 0) {
+        try {
+          formatClasses.add(Class.forName(format).asSubclass(AbstractBeanFormatDoclet.class));
+        } catch (ClassNotFoundException ex) {
+          throw new IllegalArgumentException("Unknown output format " + format, ex);
+        }
+      }
+    }
+    return formatClasses;
+  }
+
+  /**
+   * The composite has no output of its own.
+   *
+   * @return the empty extension
+   */
+  @Override
+  protected String getOutputExtension() {
+    return "";
+  }
+
+  /**
+   * Open root section in all formats.
+   *
+   * @param rootClassTree
+   *     the root class tree
+   * @throws IOException
+   *     the iO exception
+   */
+  @Override
+  protected void openRootSection(ClassTree rootClassTree) throws IOException {
+    for (AbstractBeanFormatDoclet renderer : renderers) {
+      renderer.openRootSection(rootClassTree);
+    }
+  }
+
+  /**
+   * Close root section in all formats.
+   *
+   * @param rootClassTree
+   *     the root class tree
+   * @throws IOException
+   *     the iO exception
+   */
+  @Override
+  protected void closeRootSection(ClassTree rootClassTree) throws IOException {
+    for (AbstractBeanFormatDoclet renderer : renderers) {
+      renderer.closeRootSection(rootClassTree);
+    }
+  }
+
+  /**
+   * Write class section in all formats.
+   *
+   * @param classTree
+   *     the class tree
+   * @param classDoc
+   *     the class doc
+   * @throws IOException
+   *     the iO exception
+   */
+  @Override
+  protected void writeClassSection(ClassTree classTree, ClassDoc classDoc) throws IOException {
+    for (AbstractBeanFormatDoclet renderer : renderers) {
+      renderer.adoptConfigSetState(this);
+      renderer.writeClassSection(classTree, classDoc);
+    }
+  }
+
+  /**
+   * Write class chunk in all formats.
+   *
+   * @param classTree
+   *     the class tree
+   * @throws IOException
+   *     the iO exception
+   */
+  @Override
+  protected void writeClassChunk(ClassTree classTree) throws IOException {
+    for (AbstractBeanFormatDoclet renderer : renderers) {
+      renderer.adoptConfigSetState(this);
+      renderer.writeClassChunk(classTree);
+    }
+  }
+
+  /**
+   * Close class section in all formats.
+   *
+   * @throws IOException
+   *     the iO exception
+   */
+  @Override
+  protected void closeClassSection() throws IOException {
+    for (AbstractBeanFormatDoclet renderer : renderers) {
+      renderer.closeClassSection();
+    }
+  }
+}
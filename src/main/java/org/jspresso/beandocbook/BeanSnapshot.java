@@ -0,0 +1,776 @@
+/*
+ * Copyright (c) 2005-2016 Vincent Vandenschrick. All rights reserved.
+ *
+ *  This file is part of the Jspresso framework.
+ *
+ *  Jspresso is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Jspresso is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with Jspresso.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jspresso.beandocbook;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.sun.javadoc.ClassDoc;
+import com.sun.javadoc.MethodDoc;
+import com.sun.javadoc.PackageDoc;
+import com.sun.javadoc.Parameter;
+import com.sun.javadoc.ParameterizedType;
+import com.sun.javadoc.RootDoc;
+import com.sun.javadoc.SeeTag;
+import com.sun.javadoc.Tag;
+import com.sun.javadoc.Type;
+import com.sun.javadoc.WildcardType;
+
+/**
+ * Binary snapshot of the javadoc information the bean doclets use : classes,
+ * superclass links, internal and deprecated flags, comments and setter
+ * properties with their types. Rendering from a snapshot does not need the
+ * javadoc source parse.
+ * <p>
+ * The file is made of a header, a string offset table, a class offset table
+ * and a data section of int records referencing each other by position,
+ * followed by the UTF-8 string bytes. It is memory-mapped when read and the
+ * records are only decoded on access, through lightweight implementations of
+ * the doclet API.
+ *
+ * @version $LastChangedRevision: 3701 $
+ * @author Vincent Vandenschrick
+ */
+public final class BeanSnapshot {
+
+  /**
+   * The version of the snapshot file layout. It must be increased whenever
+   * the layout or the extracted information changes.
+   */
+  public static final int FORMAT_VERSION = 1;
+
+  private static final int     MAGIC      = 0x42445348;
+  private static final int     HEADER     = 6;
+  private static final Charset UTF_8      = Charset.forName("UTF-8");
+  private static final int     NO_REF     = -1;
+
+  private static final int     PUBLIC     = 1;
+  private static final int     CLASS      = 2;
+  private static final int     INTERNAL   = 4;
+  private static final int     DEPRECATED = 8;
+
+  // Class record layout.
+  private static final int     C_QUALIFIED_NAME = 0;
+  private static final int     C_NAME           = 1;
+  private static final int     C_SIMPLE_NAME    = 2;
+  private static final int     C_PACKAGE        = 3;
+  private static final int     C_FLAGS          = 4;
+  private static final int     C_SUPERTYPE      = 5;
+  private static final int     C_SUPERCLASS     = 6;
+  private static final int     C_TAGS           = 7;
+  private static final int     C_METHODS        = 8;
+
+  // Method record layout.
+  private static final int     M_NAME           = 0;
+  private static final int     M_FLAGS          = 1;
+  private static final int     M_SIGNATURE      = 2;
+  private static final int     M_PARAMETER_TYPE = 3;
+  private static final int     M_PARAMETER_NAME = 4;
+  private static final int     M_TAGS           = 5;
+  private static final int     M_INHERITED_TAGS = 6;
+  private static final int     M_CLASS          = 7;
+
+  // Type record layout, followed by the argument or bound references.
+  private static final int     T_KIND           = 0;
+  private static final int     T_QUALIFIED_NAME = 1;
+  private static final int     T_SIMPLE_NAME    = 2;
+  private static final int     T_DIMENSION      = 3;
+  private static final int     T_STRING         = 4;
+  private static final int     T_CLASS          = 5;
+  private static final int     T_ARGUMENTS      = 6;
+
+  private static final int     PLAIN_TYPE         = 0;
+  private static final int     PARAMETERIZED_TYPE = 1;
+  private static final int     WILDCARD_TYPE      = 2;
+
+  // Tag record layout, tag lists being prefixed by their length.
+  private static final int     TAG_SIZE      = 4;
+  private static final int     TAG_NAME      = 0;
+  private static final int     TAG_TEXT      = 1;
+  private static final int     TAG_LABEL     = 2;
+  private static final int     TAG_REFERENCE = 3;
+
+  private final AbstractBeanDoclet   doclet;
+  private final InheritDocCache      inheritDocCache;
+  private final Map<String, Integer> stringIndices;
+  private final List<String>         strings;
+  private final Map<String, Integer> classIndices;
+  private final List<ClassDoc>       classDocs;
+  private final IntList              classOffsets;
+  private final IntList              data;
+
+  private BeanSnapshot(AbstractBeanDoclet doclet, InheritDocCache inheritDocCache) {
+    this.doclet = doclet;
+    this.inheritDocCache = inheritDocCache;
+    this.stringIndices = new HashMap<String, Integer>();
+    this.strings = new ArrayList<String>();
+    this.classIndices = new HashMap<String, Integer>();
+    this.classDocs = new ArrayList<ClassDoc>();
+    this.classOffsets = new IntList();
+    this.data = new IntList();
+  }
+
+  /**
+   * Writes the snapshot of a set of classes. The classes referenced by them,
+   * e.g. external superclasses, are recorded without their comments nor
+   * methods.
+   *
+   * @param classes
+   *          the documented classes.
+   * @param doclet
+   *          the doclet telling the setters apart.
+   * @param inheritDocCache
+   *          the cache expanding <code>{&#64;inheritDoc}</code> tags.
+   * @param file
+   *          the snapshot file.
+   * @throws IOException
+   *           whenever an I/O error occurs.
+   */
+  public static void write(ClassDoc[] classes, AbstractBeanDoclet doclet, InheritDocCache inheritDocCache,
+                           File file) throws IOException {
+    BeanSnapshot snapshot = new BeanSnapshot(doclet, inheritDocCache);
+    for (ClassDoc classDoc : classes) {
+      snapshot.classRef(classDoc);
+    }
+    int includedCount = snapshot.classDocs.size();
+    // Referenced classes are appended while writing.
+    for (int i = 0; i < snapshot.classDocs.size(); i++) {
+      snapshot.classOffsets.add(snapshot.writeClass(snapshot.classDocs.get(i), i, i < includedCount));
+    }
+    snapshot.save(file, includedCount);
+  }
+
+  /**
+   * Opens a snapshot as a root doc.
+   *
+   * @param file
+   *          the snapshot file.
+   * @param options
+   *          the doclet options the root doc exposes.
+   * @return the root doc.
+   * @throws IOException
+   *           if the file cannot be read or is not a snapshot of the current
+   *           format version.
+   */
+  public static RootDoc open(File file, String[][] options) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    MappedByteBuffer buffer;
+    try {
+      buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+    } finally {
+      raf.close();
+    }
+    if (buffer.capacity() < HEADER * 4 || buffer.getInt(0) != MAGIC) {
+      throw new IOException(file + " is not a bean snapshot");
+    }
+    if (buffer.getInt(4) != FORMAT_VERSION) {
+      throw new IOException(file + " has an unsupported snapshot version " + buffer.getInt(4));
+    }
+    Reader reader = new Reader(buffer, options);
+    return (RootDoc) reader.proxy(RootDoc.class, Reader.ROOT, 0);
+  }
+
+  private int classRef(ClassDoc classDoc) {
+    if (classDoc == null) {
+      return NO_REF;
+    }
+    Integer index = classIndices.get(classDoc.qualifiedTypeName());
+    if (index == null) {
+      index = classDocs.size();
+      classIndices.put(classDoc.qualifiedTypeName(), index);
+      classDocs.add(classDoc);
+    }
+    return index;
+  }
+
+  private int stringRef(String string) {
+    if (string == null) {
+      return NO_REF;
+    }
+    Integer index = stringIndices.get(string);
+    if (index == null) {
+      index = strings.size();
+      stringIndices.put(string, index);
+      strings.add(string);
+    }
+    return index;
+  }
+
+  private int writeClass(ClassDoc classDoc, int classIndex, boolean included) {
+    int flags = (classDoc.isPublic() ? PUBLIC : 0) | (classDoc.isClass() ? CLASS : 0);
+    if (classDoc.tags("@internal").length > 0) {
+      flags |= INTERNAL;
+    }
+    if (classDoc.tags("@deprecated").length > 0) {
+      flags |= DEPRECATED;
+    }
+    int superTypeRef = NO_REF;
+    int superclassRef = NO_REF;
+    IntList methodRefs = new IntList();
+    int tagsRef;
+    if (included) {
+      if (classDoc.superclassType() != null) {
+        superclassRef = classRef(classDoc.superclass());
+        superTypeRef = writeType(classDoc.superclassType());
+      }
+      tagsRef = writeTags(classDoc.inlineTags());
+      for (MethodDoc methodDoc : classDoc.methods()) {
+        if (methodDoc.parameters().length == 1 && doclet.isSetter(methodDoc)) {
+          methodRefs.add(writeMethod(methodDoc, classIndex));
+        }
+      }
+    } else {
+      tagsRef = writeTags(new Tag[0]);
+    }
+    int methodsRef = writeRefs(methodRefs);
+    return data.add(stringRef(classDoc.qualifiedTypeName()), stringRef(classDoc.name()), stringRef(
+        classDoc.simpleTypeName()), stringRef(classDoc.containingPackage().name()), flags, superTypeRef,
+        superclassRef, tagsRef, methodsRef);
+  }
+
+  private int writeMethod(MethodDoc methodDoc, int classIndex) {
+    int flags = methodDoc.isPublic() ? PUBLIC : 0;
+    if (methodDoc.tags("@internal").length > 0) {
+      flags |= INTERNAL;
+    }
+    if (methodDoc.tags("@deprecated").length > 0) {
+      flags |= DEPRECATED;
+    }
+    Parameter parameter = methodDoc.parameters()[0];
+    int typeRef = writeType(parameter.type());
+    int tagsRef = writeTags(methodDoc.inlineTags());
+    int inheritedTagsRef = NO_REF;
+    for (Tag tag : methodDoc.inlineTags()) {
+      if ("@inheritDoc".equals(tag.name())) {
+        inheritedTagsRef = writeTags(inheritDocCache.getInheritedTags(methodDoc));
+        break;
+      }
+    }
+    return data.add(stringRef(methodDoc.name()), flags, stringRef(methodDoc.signature()), typeRef, stringRef(
+        parameter.name()), tagsRef, inheritedTagsRef, classIndex);
+  }
+
+  private int writeType(Type type) {
+    IntList refs = new IntList();
+    int kind = PLAIN_TYPE;
+    WildcardType wildcardType = type.asWildcardType();
+    ParameterizedType parameterizedType = type.asParameterizedType();
+    if (wildcardType != null) {
+      kind = WILDCARD_TYPE;
+      writeTypes(wildcardType.extendsBounds(), refs);
+      writeTypes(wildcardType.superBounds(), refs);
+    } else if (parameterizedType != null) {
+      kind = PARAMETERIZED_TYPE;
+      writeTypes(parameterizedType.typeArguments(), refs);
+    } else {
+      refs.add(0);
+    }
+    int classIndex = NO_REF;
+    ClassDoc classDoc = type.asClassDoc();
+    if (classDoc != null && classIndices.containsKey(classDoc.qualifiedTypeName())) {
+      classIndex = classIndices.get(classDoc.qualifiedTypeName());
+    }
+    int offset = data.add(kind, stringRef(type.qualifiedTypeName()), stringRef(type.simpleTypeName()), stringRef(
+        type.dimension()), stringRef(type.toString()), classIndex);
+    data.addAll(refs);
+    return offset;
+  }
+
+  private void writeTypes(Type[] types, IntList refs) {
+    int[] typeRefs = new int[types.length];
+    for (int i = 0; i < types.length; i++) {
+      typeRefs[i] = writeType(types[i]);
+    }
+    refs.add(types.length);
+    for (int typeRef : typeRefs) {
+      refs.add(typeRef);
+    }
+  }
+
+  private int writeTags(Tag[] tags) {
+    int[] record = new int[1 + tags.length * TAG_SIZE];
+    record[0] = tags.length;
+    for (int i = 0; i < tags.length; i++) {
+      int base = 1 + i * TAG_SIZE;
+      record[base + TAG_NAME] = stringRef(tags[i].name());
+      record[base + TAG_TEXT] = stringRef(tags[i].text());
+      record[base + TAG_LABEL] = NO_REF;
+      record[base + TAG_REFERENCE] = NO_REF;
+      if (tags[i] instanceof SeeTag) {
+        // An empty label tells a see tag from a plain one.
+        String label = ((SeeTag) tags[i]).label();
+        record[base + TAG_LABEL] = stringRef(label != null ? label : "");
+        record[base + TAG_REFERENCE] = classRef(((SeeTag) tags[i]).referencedClass());
+      }
+    }
+    return data.add(record);
+  }
+
+  private int writeRefs(IntList refs) {
+    int offset = data.add(refs.size());
+    data.addAll(refs);
+    return offset;
+  }
+
+  private void save(File file, int includedCount) throws IOException {
+    byte[][] encodedStrings = new byte[strings.size()][];
+    int stringsLength = 0;
+    for (int i = 0; i < encodedStrings.length; i++) {
+      encodedStrings[i] = strings.get(i).getBytes(UTF_8);
+      stringsLength += encodedStrings[i].length;
+    }
+    File parentDir = file.getAbsoluteFile().getParentFile();
+    parentDir.mkdirs();
+    File tmpFile = new File(file.getPath() + ".tmp");
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+    try {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      out.writeInt(encodedStrings.length);
+      out.writeInt(classOffsets.size());
+      out.writeInt(includedCount);
+      out.writeInt(data.size());
+      int stringOffset = 0;
+      for (byte[] encodedString : encodedStrings) {
+        out.writeInt(stringOffset);
+        stringOffset += encodedString.length;
+      }
+      out.writeInt(stringsLength);
+      for (int i = 0; i < classOffsets.size(); i++) {
+        out.writeInt(classOffsets.get(i));
+      }
+      for (int i = 0; i < data.size(); i++) {
+        out.writeInt(data.get(i));
+      }
+      for (byte[] encodedString : encodedStrings) {
+        out.write(encodedString);
+      }
+    } finally {
+      out.close();
+    }
+    if (!tmpFile.renameTo(file)) {
+      file.delete();
+      if (!tmpFile.renameTo(file)) {
+        throw new IOException("Could not replace " + file);
+      }
+    }
+  }
+
+  /**
+   * A growable int array.
+   */
+  private static final class IntList {
+
+    private int[] values = new int[256];
+    private int   size;
+
+    private int add(int... added) {
+      int offset = size;
+      if (size + added.length > values.length) {
+        values = Arrays.copyOf(values, Math.max(values.length * 2, size + added.length));
+      }
+      System.arraycopy(added, 0, values, size, added.length);
+      size += added.length;
+      return offset;
+    }
+
+    private void addAll(IntList added) {
+      add(Arrays.copyOf(added.values, added.size));
+    }
+
+    private int get(int index) {
+      return values[index];
+    }
+
+    private int size() {
+      return size;
+    }
+  }
+
+  /**
+   * Reads a memory-mapped snapshot, exposing its records as doclet API
+   * elements.
+   */
+  private static final class Reader {
+
+    private static final int ROOT      = 0;
+    private static final int CLASS_DOC = 1;
+    private static final int PACKAGE   = 2;
+    private static final int METHOD    = 3;
+    private static final int ANCESTOR  = 4;
+    private static final int PARAMETER = 5;
+    private static final int TYPE      = 6;
+    private static final int TAG       = 7;
+    private static final int FLAG_TAG  = 8;
+
+    private final ByteBuffer buffer;
+    private final String[][] options;
+    private final int        includedCount;
+    private final int        stringOffsetsBase;
+    private final int        classOffsetsBase;
+    private final int        dataBase;
+    private final int        stringsBase;
+    private final String[]   strings;
+    private final ClassDoc[] classDocs;
+
+    private Reader(ByteBuffer buffer, String[][] options) {
+      this.buffer = buffer;
+      this.options = options;
+      int stringCount = buffer.getInt(8);
+      int classCount = buffer.getInt(12);
+      includedCount = buffer.getInt(16);
+      int dataLength = buffer.getInt(20);
+      stringOffsetsBase = HEADER * 4;
+      classOffsetsBase = stringOffsetsBase + (stringCount + 1) * 4;
+      dataBase = classOffsetsBase + classCount * 4;
+      stringsBase = dataBase + dataLength * 4;
+      strings = new String[stringCount];
+      classDocs = new ClassDoc[classCount];
+    }
+
+    private int data(int offset) {
+      return buffer.getInt(dataBase + offset * 4);
+    }
+
+    private synchronized String string(int index) {
+      if (index == NO_REF) {
+        return null;
+      }
+      String string = strings[index];
+      if (string == null) {
+        int start = buffer.getInt(stringOffsetsBase + index * 4);
+        byte[] bytes = new byte[buffer.getInt(stringOffsetsBase + (index + 1) * 4) - start];
+        ByteBuffer view = buffer.duplicate();
+        view.position(stringsBase + start);
+        view.get(bytes);
+        string = new String(bytes, UTF_8);
+        strings[index] = string;
+      }
+      return string;
+    }
+
+    private synchronized ClassDoc classDoc(int index) {
+      if (index == NO_REF) {
+        return null;
+      }
+      if (classDocs[index] == null) {
+        classDocs[index] = (ClassDoc) proxy(ClassDoc.class, CLASS_DOC, index);
+      }
+      return classDocs[index];
+    }
+
+    private int classData(int index, int field) {
+      return data(buffer.getInt(classOffsetsBase + index * 4) + field);
+    }
+
+    private Object proxy(Class<?> docType, int kind, int offset) {
+      return Proxy.newProxyInstance(BeanSnapshot.class.getClassLoader(), new Class<?>[] {docType},
+          new Element(kind, offset));
+    }
+
+    private Type type(int offset) {
+      if (offset == NO_REF) {
+        return null;
+      }
+      switch (data(offset + T_KIND)) {
+        case PARAMETERIZED_TYPE:
+          return (Type) proxy(ParameterizedType.class, TYPE, offset);
+        case WILDCARD_TYPE:
+          return (Type) proxy(WildcardType.class, TYPE, offset);
+        default:
+          return (Type) proxy(Type.class, TYPE, offset);
+      }
+    }
+
+    private Type[] types(int offset) {
+      Type[] types = new Type[data(offset)];
+      for (int i = 0; i < types.length; i++) {
+        types[i] = type(data(offset + 1 + i));
+      }
+      return types;
+    }
+
+    private Tag[] tags(int offset) {
+      Tag[] tags = new Tag[data(offset)];
+      for (int i = 0; i < tags.length; i++) {
+        int tagOffset = offset + 1 + i * TAG_SIZE;
+        tags[i] = (Tag) proxy(data(tagOffset + TAG_LABEL) == NO_REF ? Tag.class : SeeTag.class, TAG, tagOffset);
+      }
+      return tags;
+    }
+
+    private Tag[] flagTags(int flags, String tagName) {
+      List<Tag> tags = new ArrayList<Tag>();
+      if ((flags & INTERNAL) != 0 && (tagName == null || "@internal".equals(tagName))) {
+        tags.add((Tag) proxy(Tag.class, FLAG_TAG, INTERNAL));
+      }
+      if ((flags & DEPRECATED) != 0 && (tagName == null || "@deprecated".equals(tagName))) {
+        tags.add((Tag) proxy(Tag.class, FLAG_TAG, DEPRECATED));
+      }
+      return tags.toArray(new Tag[tags.size()]);
+    }
+
+    /**
+     * A snapshot record seen through the doclet API.
+     */
+    private final class Element implements InvocationHandler {
+
+      private final int kind;
+      private final int offset;
+
+      private Element(int kind, int offset) {
+        this.kind = kind;
+        this.offset = offset;
+      }
+
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        if ("equals".equals(name) && method.getParameterTypes().length == 1) {
+          return proxy == args[0];
+        } else if ("hashCode".equals(name) && method.getParameterTypes().length == 0) {
+          return System.identityHashCode(proxy);
+        }
+        Object result;
+        switch (kind) {
+          case ROOT:
+            result = invokeRoot(name, args);
+            break;
+          case CLASS_DOC:
+            result = invokeClass(proxy, name, args);
+            break;
+          case PACKAGE:
+            result = invokePackage(name);
+            break;
+          case METHOD:
+          case ANCESTOR:
+            result = invokeMethod(name, args);
+            break;
+          case PARAMETER:
+            result = invokeParameter(name);
+            break;
+          case TYPE:
+            result = invokeType(proxy, name);
+            break;
+          case FLAG_TAG:
+            result = invokeFlagTag(name);
+            break;
+          default:
+            result = invokeTag(name);
+            break;
+        }
+        if (result == this) {
+          throw new UnsupportedOperationException(name + " is not available from a bean snapshot");
+        }
+        return result;
+      }
+
+      private Object invokeRoot(String name, Object[] args) {
+        if ("classes".equals(name) || "specifiedClasses".equals(name)) {
+          ClassDoc[] classes = new ClassDoc[includedCount];
+          for (int i = 0; i < includedCount; i++) {
+            classes[i] = classDoc(i);
+          }
+          return classes;
+        } else if ("options".equals(name)) {
+          return options;
+        } else if ("printNotice".equals(name)) {
+          System.out.println(args[args.length - 1]);
+          return null;
+        } else if ("printWarning".equals(name) || "printError".equals(name)) {
+          System.err.println(args[args.length - 1]);
+          return null;
+        } else if ("name".equals(name) || "toString".equals(name)) {
+          return "";
+        }
+        return this;
+      }
+
+      private Object invokeClass(Object proxy, String name, Object[] args) {
+        int flags = classData(offset, C_FLAGS);
+        if ("qualifiedTypeName".equals(name) || "qualifiedName".equals(name) || "toString".equals(name)) {
+          return string(classData(offset, C_QUALIFIED_NAME));
+        } else if ("name".equals(name) || "typeName".equals(name)) {
+          return string(classData(offset, C_NAME));
+        } else if ("simpleTypeName".equals(name)) {
+          return string(classData(offset, C_SIMPLE_NAME));
+        } else if ("containingPackage".equals(name)) {
+          return proxy(PackageDoc.class, PACKAGE, classData(offset, C_PACKAGE));
+        } else if ("isPublic".equals(name)) {
+          return (flags & PUBLIC) != 0;
+        } else if ("isClass".equals(name) || "isOrdinaryClass".equals(name)) {
+          return (flags & CLASS) != 0;
+        } else if ("isInterface".equals(name) || "isPrimitive".equals(name)) {
+          return false;
+        } else if ("superclassType".equals(name)) {
+          return type(classData(offset, C_SUPERTYPE));
+        } else if ("superclass".equals(name)) {
+          return classDoc(classData(offset, C_SUPERCLASS));
+        } else if ("interfaces".equals(name)) {
+          return new ClassDoc[0];
+        } else if ("methods".equals(name)) {
+          int methodsRef = classData(offset, C_METHODS);
+          MethodDoc[] methods = new MethodDoc[data(methodsRef)];
+          for (int i = 0; i < methods.length; i++) {
+            methods[i] = (MethodDoc) proxy(MethodDoc.class, METHOD, data(methodsRef + 1 + i));
+          }
+          return methods;
+        } else if ("inlineTags".equals(name)) {
+          return tags(classData(offset, C_TAGS));
+        } else if ("tags".equals(name)) {
+          return flagTags(flags, args != null ? (String) args[0] : null);
+        } else if ("commentText".equals(name) || "dimension".equals(name)) {
+          return "";
+        } else if ("asClassDoc".equals(name)) {
+          return proxy;
+        } else if ("asParameterizedType".equals(name) || "asWildcardType".equals(name) || "asTypeVariable".equals(
+            name) || "asAnnotationTypeDoc".equals(name)) {
+          return null;
+        } else if ("compareTo".equals(name)) {
+          return string(classData(offset, C_NAME)).compareTo(((ClassDoc) args[0]).name());
+        }
+        return this;
+      }
+
+      private Object invokePackage(String name) {
+        if ("name".equals(name) || "toString".equals(name)) {
+          return string(offset);
+        }
+        return this;
+      }
+
+      private Object invokeMethod(String name, Object[] args) {
+        int flags = data(offset + M_FLAGS);
+        if ("name".equals(name)) {
+          return string(data(offset + M_NAME));
+        } else if ("qualifiedName".equals(name) || "toString".equals(name)) {
+          return string(data(offset + M_NAME)) + string(data(offset + M_SIGNATURE));
+        } else if ("signature".equals(name) || "flatSignature".equals(name)) {
+          return string(data(offset + M_SIGNATURE));
+        } else if ("isPublic".equals(name)) {
+          return (flags & PUBLIC) != 0;
+        } else if ("parameters".equals(name)) {
+          return new Parameter[] {(Parameter) proxy(Parameter.class, PARAMETER, offset)};
+        } else if ("inlineTags".equals(name)) {
+          return tags(data(offset + (kind == ANCESTOR ? M_INHERITED_TAGS : M_TAGS)));
+        } else if ("tags".equals(name)) {
+          return flagTags(kind == ANCESTOR ? 0 : flags, args != null ? (String) args[0] : null);
+        } else if ("commentText".equals(name)) {
+          return "";
+        } else if ("overriddenMethod".equals(name)) {
+          // The inherited comment is seen as the one of the overridden method.
+          if (kind == ANCESTOR || data(offset + M_INHERITED_TAGS) == NO_REF) {
+            return null;
+          }
+          return proxy(MethodDoc.class, ANCESTOR, offset);
+        } else if ("containingClass".equals(name)) {
+          return classDoc(data(offset + M_CLASS));
+        }
+        return this;
+      }
+
+      private Object invokeParameter(String name) {
+        if ("type".equals(name)) {
+          return type(data(offset + M_PARAMETER_TYPE));
+        } else if ("name".equals(name)) {
+          return string(data(offset + M_PARAMETER_NAME));
+        } else if ("typeName".equals(name)) {
+          return string(data(data(offset + M_PARAMETER_TYPE) + T_QUALIFIED_NAME));
+        }
+        return this;
+      }
+
+      private Object invokeType(Object proxy, String name) {
+        int typeKind = data(offset + T_KIND);
+        if ("qualifiedTypeName".equals(name)) {
+          return string(data(offset + T_QUALIFIED_NAME));
+        } else if ("simpleTypeName".equals(name) || "typeName".equals(name)) {
+          return string(data(offset + T_SIMPLE_NAME));
+        } else if ("dimension".equals(name)) {
+          return string(data(offset + T_DIMENSION));
+        } else if ("toString".equals(name)) {
+          return string(data(offset + T_STRING));
+        } else if ("asClassDoc".equals(name)) {
+          return classDoc(data(offset + T_CLASS));
+        } else if ("asParameterizedType".equals(name)) {
+          return typeKind == PARAMETERIZED_TYPE ? proxy : null;
+        } else if ("asWildcardType".equals(name)) {
+          return typeKind == WILDCARD_TYPE ? proxy : null;
+        } else if ("asTypeVariable".equals(name) || "asAnnotatedType".equals(name) || "asAnnotationTypeDoc".equals(
+            name)) {
+          return null;
+        } else if ("isPrimitive".equals(name)) {
+          return data(offset + T_CLASS) == NO_REF && string(data(offset + T_QUALIFIED_NAME)).indexOf('.') < 0;
+        } else if ("typeArguments".equals(name) || "extendsBounds".equals(name)) {
+          return types(offset + T_ARGUMENTS);
+        } else if ("superBounds".equals(name)) {
+          return types(offset + T_ARGUMENTS + 1 + data(offset + T_ARGUMENTS));
+        }
+        return this;
+      }
+
+      private Object invokeFlagTag(String name) {
+        if ("name".equals(name) || "kind".equals(name) || "toString".equals(name)) {
+          return offset == INTERNAL ? "@internal" : "@deprecated";
+        } else if ("text".equals(name)) {
+          return "";
+        }
+        return this;
+      }
+
+      private Object invokeTag(String name) {
+        boolean seeTag = data(offset + TAG_LABEL) != NO_REF;
+        if ("name".equals(name) || "toString".equals(name)) {
+          return string(data(offset + TAG_NAME));
+        } else if ("kind".equals(name)) {
+          return seeTag ? "@see" : string(data(offset + TAG_NAME));
+        } else if ("text".equals(name)) {
+          return string(data(offset + TAG_TEXT));
+        } else if ("label".equals(name)) {
+          return string(data(offset + TAG_LABEL));
+        } else if ("referencedClass".equals(name)) {
+          return classDoc(data(offset + TAG_REFERENCE));
+        } else if ("referencedClassName".equals(name)) {
+          ClassDoc referencedClass = classDoc(data(offset + TAG_REFERENCE));
+          return referencedClass != null ? referencedClass.qualifiedTypeName() : null;
+        } else if ("referencedMember".equals(name) || "referencedMemberName".equals(name) || "referencedPackage"
+            .equals(name)) {
+          return null;
+        }
+        return this;
+      }
+    }
+  }
+}
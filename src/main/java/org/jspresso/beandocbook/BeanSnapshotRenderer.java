@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2005-2016 Vincent Vandenschrick. All rights reserved.
+ *
+ *  This file is part of the Jspresso framework.
+ *
+ *  Jspresso is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Jspresso is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with Jspresso.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jspresso.beandocbook;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.sun.javadoc.RootDoc;
+
+/**
+ * Command line entry point rendering the bean documentation out of a snapshot
+ * written by the <code>-snapshot</code> doclet option, without running
+ * javadoc again. Usage :
+ * <pre>
+ * java org.jspresso.beandocbook.BeanSnapshotRenderer -snapshot &lt;file&gt; [-doclet &lt;doclet&gt;] [doclet options]
+ * </pre>
+ * where the doclet is <code>docbook</code> (the default), <code>markdown</code>,
+ * <code>multiformat</code> or a doclet class name, and the doclet options are
+ * the ones given to javadoc.
+ *
+ * @author Vincent Vandenschrick
+ * @version $LastChangedRevision: 3701 $
+ */
+public final class BeanSnapshotRenderer {
+
+  private BeanSnapshotRenderer() {
+    // Entry point only.
+  }
+
+  /**
+   * Renders a snapshot.
+   *
+   * @param args
+   *     the command line arguments.
+   * @throws Exception
+   *     whenever the snapshot cannot be read or the doclet fails to start.
+   */
+  public static void main(String[] args) throws Exception {
+    String snapshot = null;
+    String doclet = "docbook";
+    List<String[]> options = new ArrayList<String[]>();
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-snapshot") && i + 1 < args.length) {
+        snapshot = args[++i];
+      } else if (args[i].equals("-doclet") && i + 1 < args.length) {
+        doclet = args[++i];
+      } else {
+        int length = AbstractBeanDoclet.optionLength(args[i]);
+        if (length == 0 || i + length > args.length) {
+          usage("Invalid option " + args[i]);
+          return;
+        }
+        options.add(Arrays.copyOfRange(args, i, i + length));
+        i += length - 1;
+      }
+    }
+    if (snapshot == null) {
+      usage("Missing -snapshot option");
+      return;
+    }
+    long start = System.currentTimeMillis();
+    RootDoc root = BeanSnapshot.open(new File(snapshot), options.toArray(new String[options.size()][]));
+    Object result = BeanDocGenerator.getDocletClass(doclet).getMethod("start", RootDoc.class).invoke(null, root);
+    if (!Boolean.TRUE.equals(result)) {
+      System.exit(1);
+    }
+    root.printNotice("Rendered " + snapshot + " in " + (System.currentTimeMillis() - start) + " ms");
+  }
+
+  private static void usage(String message) {
+    System.err.println(message);
+    System.err.println("Usage : " + BeanSnapshotRenderer.class.getName()
+        + " -snapshot <file> [-doclet docbook|markdown|multiformat|<class>] [doclet options]");
+    System.exit(2);
+  }
+}
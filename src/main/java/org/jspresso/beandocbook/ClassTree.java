@@ -18,7 +18,10 @@
  */
 package org.jspresso.beandocbook;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
 import com.sun.javadoc.ClassDoc;
@@ -31,8 +34,11 @@ import com.sun.javadoc.ClassDoc;
  */
 public class ClassTree implements Comparable<ClassTree> {
 
-  private ClassDoc       root;
-  private Set<ClassTree> subclasses;
+  private ClassDoc        root;
+  private Set<ClassTree>  subclasses;
+  private List<ClassTree> sortedSubclasses;
+  private int             ordinal;
+  private String          collationKey;
 
   /**
    * Constructs a new <code>ClassTree</code> instance.
@@ -41,8 +47,34 @@ public class ClassTree implements Comparable<ClassTree> {
    *          the root of this class tree.
    */
   public ClassTree(ClassDoc root) {
+    this(root, -1);
+  }
+
+  /**
+   * Constructs a new <code>ClassTree</code> instance.
+   *
+   * @param root
+   *          the root of this class tree.
+   * @param ordinal
+   *          the ordinal of the root class in its class tree index.
+   */
+  public ClassTree(ClassDoc root, int ordinal) {
     this.root = root;
     this.subclasses = new LinkedHashSet<ClassTree>();
+    this.ordinal = ordinal;
+    this.collationKey = computeCollationKey(root.simpleTypeName());
+  }
+
+  /**
+   * Computes a key whose natural ordering is the one of
+   * {@link String#compareToIgnoreCase(String)}.
+   */
+  private static String computeCollationKey(String name) {
+    char[] key = new char[name.length()];
+    for (int i = 0; i < key.length; i++) {
+      key[i] = Character.toLowerCase(Character.toUpperCase(name.charAt(i)));
+    }
+    return new String(key);
   }
 
   /**
@@ -54,6 +86,15 @@ public class ClassTree implements Comparable<ClassTree> {
     return root;
   }
 
+  /**
+   * Gets the ordinal of the root class in its class tree index.
+   *
+   * @return the ordinal or -1 if not indexed.
+   */
+  public int getOrdinal() {
+    return ordinal;
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -63,7 +104,8 @@ public class ClassTree implements Comparable<ClassTree> {
   }
 
   /**
-   * Gets the subclasses.
+   * Gets the subclasses. Once the tree is frozen, the returned set is
+   * unmodifiable.
    *
    * @return the subclasses.
    */
@@ -71,13 +113,51 @@ public class ClassTree implements Comparable<ClassTree> {
     return subclasses;
   }
 
+  /**
+   * Gets the subclasses sorted by simple class name.
+   *
+   * @return the sorted subclasses.
+   */
+  public List<ClassTree> getSortedSubclasses() {
+    if (sortedSubclasses == null) {
+      return sortSubclasses();
+    }
+    return sortedSubclasses;
+  }
+
+  /**
+   * Freezes this class tree node. Its subclasses are sorted once and can no
+   * longer be modified.
+   */
+  public void freeze() {
+    if (sortedSubclasses == null) {
+      sortedSubclasses = sortSubclasses();
+      subclasses = Collections.unmodifiableSet(subclasses);
+    }
+  }
+
+  /**
+   * Is this class tree node frozen.
+   *
+   * @return true if frozen.
+   */
+  public boolean isFrozen() {
+    return sortedSubclasses != null;
+  }
+
+  private List<ClassTree> sortSubclasses() {
+    ClassTree[] sorted = subclasses.toArray(new ClassTree[subclasses.size()]);
+    // Stable sort, keeps the index order of equally named classes.
+    Arrays.sort(sorted);
+    return Collections.unmodifiableList(Arrays.asList(sorted));
+  }
+
   /**
    * Comparison based on root simple class name.
    * <p>
    * {@inheritDoc}
    */
   public int compareTo(ClassTree another) {
-    return getRoot().simpleTypeName().compareToIgnoreCase(
-        another.getRoot().simpleTypeName());
+    return collationKey.compareTo(another.collationKey);
   }
 }
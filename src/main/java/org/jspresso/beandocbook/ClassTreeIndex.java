@@ -0,0 +1,419 @@
+/*
+ * Copyright (c) 2005-2016 Vincent Vandenschrick. All rights reserved.
+ *
+ *  This file is part of the Jspresso framework.
+ *
+ *  Jspresso is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Jspresso is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with Jspresso.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jspresso.beandocbook;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.sun.javadoc.ClassDoc;
+import com.sun.javadoc.MethodDoc;
+import com.sun.javadoc.Parameter;
+import com.sun.javadoc.ParameterizedType;
+import com.sun.javadoc.Type;
+import com.sun.javadoc.WildcardType;
+
+/**
+ * Run-scoped index of the public class hierarchy. It is built once per javadoc
+ * run and then shared by every config set. The subclasses of each class are
+ * recorded in a compact reverse-superclass index keyed by class ordinal.
+ * <p>
+ * In eager mode, the whole class tree is materialized while indexing and each
+ * config set only looks up its own root class tree. The internal and
+ * deprecated flags of the classes and of their methods are classified at the
+ * same time, so that the javadoc tags are queried only once. In lazy mode,
+ * class tree nodes are only materialized on demand by expanding detached
+ * nodes, and the flags are classified the first time they are needed.
+ *
+ * @version $LastChangedRevision: 3701 $
+ * @author Vincent Vandenschrick
+ */
+public class ClassTreeIndex {
+
+  private final boolean                 lazy;
+  private final ClassDoc[]              classDocs;
+  private final Map<String, Integer>    ordinals;
+  private final int[]                   subclassOffsets;
+  private final int[]                   subclassOrdinals;
+  private final BitSet                  classifiedClasses;
+  private final BitSet                  internalClasses;
+  private final BitSet                  deprecatedClasses;
+  private final Map<String, Boolean>    internalOrDeprecatedExternals;
+  private final BitSet                  classifiedMethods;
+  private final Map<MethodDoc, Boolean> internalOrDeprecatedMethods;
+  private ClassTree[]                   classTrees;
+
+  /**
+   * Constructs a new eager <code>ClassTreeIndex</code> instance.
+   *
+   * @param classes
+   *          the classes to index.
+   */
+  public ClassTreeIndex(ClassDoc[] classes) {
+    this(classes, false);
+  }
+
+  /**
+   * Constructs a new <code>ClassTreeIndex</code> instance.
+   *
+   * @param classes
+   *          the classes to index.
+   * @param lazy
+   *          whether class tree nodes are materialized on demand.
+   */
+  public ClassTreeIndex(ClassDoc[] classes, boolean lazy) {
+    this.lazy = lazy;
+    List<ClassDoc> indexedClasses = new ArrayList<ClassDoc>();
+    ordinals = new HashMap<String, Integer>();
+    for (ClassDoc classDoc : classes) {
+      if (classDoc.isPublic() && classDoc.isClass() && !ordinals.containsKey(classDoc.qualifiedTypeName())) {
+        ordinals.put(classDoc.qualifiedTypeName(), indexedClasses.size());
+        indexedClasses.add(classDoc);
+      }
+    }
+    classDocs = indexedClasses.toArray(new ClassDoc[indexedClasses.size()]);
+    internalOrDeprecatedExternals = new HashMap<String, Boolean>();
+
+    // Reverse-superclass index, subclasses being kept in index order.
+    int[] parents = new int[classDocs.length];
+    subclassOffsets = new int[classDocs.length + 1];
+    for (int i = 0; i < classDocs.length; i++) {
+      parents[i] = -1;
+      Type superclassType = classDocs[i].superclassType();
+      if (superclassType != null) {
+        Integer parent = ordinals.get(superclassType.qualifiedTypeName());
+        if (parent != null) {
+          parents[i] = parent;
+          subclassOffsets[parent + 1]++;
+        } else if (!lazy && superclassType.asClassDoc() != null) {
+          classifyExternal(superclassType.asClassDoc());
+        }
+      }
+    }
+    for (int i = 0; i < classDocs.length; i++) {
+      subclassOffsets[i + 1] += subclassOffsets[i];
+    }
+    subclassOrdinals = new int[subclassOffsets[classDocs.length]];
+    int[] fill = new int[classDocs.length];
+    for (int i = 0; i < classDocs.length; i++) {
+      if (parents[i] >= 0) {
+        subclassOrdinals[subclassOffsets[parents[i]] + fill[parents[i]]++] = i;
+      }
+    }
+
+    classifiedClasses = new BitSet(classDocs.length);
+    internalClasses = new BitSet(classDocs.length);
+    deprecatedClasses = new BitSet(classDocs.length);
+    classifiedMethods = new BitSet(classDocs.length);
+    internalOrDeprecatedMethods = new IdentityHashMap<MethodDoc, Boolean>();
+    if (!lazy) {
+      classTrees = new ClassTree[classDocs.length];
+      for (int i = 0; i < classDocs.length; i++) {
+        classify(i);
+        classifyMethods(i);
+        classTrees[i] = new ClassTree(classDocs[i], i);
+      }
+      for (int i = 0; i < classDocs.length; i++) {
+        for (int j = subclassOffsets[i]; j < subclassOffsets[i + 1]; j++) {
+          classTrees[i].getSubclasses().add(classTrees[subclassOrdinals[j]]);
+        }
+        classTrees[i].freeze();
+      }
+    }
+  }
+
+  private void classify(int ordinal) {
+    if (!classifiedClasses.get(ordinal)) {
+      internalClasses.set(ordinal, classDocs[ordinal].tags("@internal").length > 0);
+      deprecatedClasses.set(ordinal, classDocs[ordinal].tags("@deprecated").length > 0);
+      classifiedClasses.set(ordinal);
+    }
+  }
+
+  private void classifyMethods(int ordinal) {
+    if (!classifiedMethods.get(ordinal)) {
+      for (MethodDoc methodDoc : classDocs[ordinal].methods()) {
+        internalOrDeprecatedMethods.put(methodDoc, hasInternalOrDeprecatedTag(methodDoc));
+      }
+      classifiedMethods.set(ordinal);
+    }
+  }
+
+  private static boolean hasInternalOrDeprecatedTag(MethodDoc methodDoc) {
+    return methodDoc.tags("@internal").length > 0 || methodDoc.tags("@deprecated").length > 0;
+  }
+
+  private boolean classifyExternal(ClassDoc classDoc) {
+    Boolean internalOrDeprecated = internalOrDeprecatedExternals.get(classDoc.qualifiedTypeName());
+    if (internalOrDeprecated == null) {
+      internalOrDeprecated = classDoc.tags("@internal").length > 0 || classDoc.tags("@deprecated").length > 0;
+      internalOrDeprecatedExternals.put(classDoc.qualifiedTypeName(), internalOrDeprecated);
+    }
+    return internalOrDeprecated;
+  }
+
+  private boolean hasFlag(BitSet flags, int ordinal) {
+    if (lazy) {
+      synchronized (this) {
+        classify(ordinal);
+        return flags.get(ordinal);
+      }
+    }
+    return flags.get(ordinal);
+  }
+
+  /**
+   * Is the root class of a class tree internal.
+   *
+   * @param classTree
+   *          the indexed class tree.
+   * @return true if tagged <code>@internal</code>.
+   */
+  public boolean isInternal(ClassTree classTree) {
+    return hasFlag(internalClasses, classTree.getOrdinal());
+  }
+
+  /**
+   * Is the root class of a class tree deprecated.
+   *
+   * @param classTree
+   *          the indexed class tree.
+   * @return true if tagged <code>@deprecated</code>.
+   */
+  public boolean isDeprecated(ClassTree classTree) {
+    return hasFlag(deprecatedClasses, classTree.getOrdinal());
+  }
+
+  /**
+   * Is a class internal or deprecated. Besides the indexed classes, this
+   * covers the superclasses of the indexed classes.
+   *
+   * @param classDoc
+   *          the class doc.
+   * @return true if tagged <code>@internal</code> or <code>@deprecated</code>.
+   */
+  public boolean isInternalOrDeprecated(ClassDoc classDoc) {
+    int ordinal = getOrdinal(classDoc.qualifiedTypeName());
+    if (ordinal >= 0) {
+      return hasFlag(internalClasses, ordinal) || hasFlag(deprecatedClasses, ordinal);
+    }
+    if (lazy) {
+      synchronized (this) {
+        return classifyExternal(classDoc);
+      }
+    }
+    Boolean internalOrDeprecated = internalOrDeprecatedExternals.get(classDoc.qualifiedTypeName());
+    return internalOrDeprecated != null && internalOrDeprecated;
+  }
+
+  /**
+   * Is a method internal or deprecated. The methods of the indexed classes
+   * are classified once, the other ones each time they are looked up.
+   *
+   * @param methodDoc
+   *          the method doc.
+   * @return true if tagged <code>@internal</code> or <code>@deprecated</code>.
+   */
+  public boolean isInternalOrDeprecated(MethodDoc methodDoc) {
+    Boolean internalOrDeprecated;
+    int ordinal = getOrdinal(methodDoc.containingClass().qualifiedTypeName());
+    if (ordinal < 0) {
+      internalOrDeprecated = null;
+    } else if (lazy) {
+      synchronized (this) {
+        classifyMethods(ordinal);
+        internalOrDeprecated = internalOrDeprecatedMethods.get(methodDoc);
+      }
+    } else {
+      internalOrDeprecated = internalOrDeprecatedMethods.get(methodDoc);
+    }
+    if (internalOrDeprecated == null) {
+      return hasInternalOrDeprecatedTag(methodDoc);
+    }
+    return internalOrDeprecated;
+  }
+
+  /**
+   * Is this index lazy.
+   *
+   * @return true if class tree nodes are materialized on demand.
+   */
+  public boolean isLazy() {
+    return lazy;
+  }
+
+  /**
+   * Gets the ordinal of a class.
+   *
+   * @param qualifiedName
+   *          the qualified name of the class.
+   * @return the ordinal or -1 if the class is not indexed.
+   */
+  public int getOrdinal(String qualifiedName) {
+    Integer ordinal = ordinals.get(qualifiedName);
+    if (ordinal == null) {
+      return -1;
+    }
+    return ordinal;
+  }
+
+  /**
+   * Gets an indexed class.
+   *
+   * @param ordinal
+   *          the class ordinal.
+   * @return the class doc.
+   */
+  public ClassDoc getClassDoc(int ordinal) {
+    return classDocs[ordinal];
+  }
+
+  /**
+   * Gets the class tree rooted at a class. In lazy mode, a detached class tree
+   * node is returned, that has to be expanded to get its subclasses.
+   *
+   * @param qualifiedName
+   *          the qualified name of the root class.
+   * @return the class tree or null if the class is not indexed.
+   */
+  public ClassTree getClassTree(String qualifiedName) {
+    int ordinal = getOrdinal(qualifiedName);
+    if (ordinal < 0) {
+      return null;
+    }
+    if (lazy) {
+      return new ClassTree(classDocs[ordinal], ordinal);
+    }
+    return classTrees[ordinal];
+  }
+
+  /**
+   * Expands a detached class tree node of a lazy index : its direct
+   * subclasses are linked as detached nodes and the node gets frozen. This is
+   * a no-op on already frozen nodes.
+   *
+   * @param classTree
+   *          the class tree node to expand.
+   */
+  public void expand(ClassTree classTree) {
+    if (classTree.isFrozen()) {
+      return;
+    }
+    int ordinal = classTree.getOrdinal();
+    for (int j = subclassOffsets[ordinal]; j < subclassOffsets[ordinal + 1]; j++) {
+      classTree.getSubclasses().add(new ClassTree(classDocs[subclassOrdinals[j]], subclassOrdinals[j]));
+    }
+    classTree.freeze();
+  }
+
+  /**
+   * Eagerly resolves the lazily computed parts of the javadoc model that are
+   * used for rendering. The javadoc tool caches them in non thread-safe
+   * structures, so this must be called before reading the indexed classes
+   * from several threads. Besides the indexed classes and their methods, it
+   * walks every type reached by the setter parameters, i.e. the wildcard
+   * bounds and nested type arguments, and the override chains and
+   * super-interfaces that <code>{&#64;inheritDoc}</code> is resolved from.
+   */
+  public void preload() {
+    Set<ClassDoc> visitedInterfaces = Collections.newSetFromMap(new IdentityHashMap<ClassDoc, Boolean>());
+    for (ClassDoc classDoc : classDocs) {
+      classDoc.commentText();
+      classDoc.tags();
+      classDoc.inlineTags();
+      classDoc.containingPackage().name();
+      for (ClassDoc ancestor = classDoc; ancestor != null; ancestor = ancestor.superclass()) {
+        preloadInterfaces(ancestor.interfaces(), visitedInterfaces);
+      }
+      for (MethodDoc methodDoc : classDoc.methods()) {
+        preloadMethod(methodDoc);
+        for (MethodDoc overridden = methodDoc.overriddenMethod(); overridden != null;
+             overridden = overridden.overriddenMethod()) {
+          overridden.inlineTags();
+        }
+        for (Parameter parameter : methodDoc.parameters()) {
+          preloadType(parameter.type());
+        }
+      }
+    }
+  }
+
+  private static void preloadMethod(MethodDoc methodDoc) {
+    methodDoc.name();
+    methodDoc.signature();
+    methodDoc.commentText();
+    methodDoc.tags();
+    methodDoc.inlineTags();
+  }
+
+  private static void preloadInterfaces(ClassDoc[] interfaces, Set<ClassDoc> visitedInterfaces) {
+    for (ClassDoc interfaceDoc : interfaces) {
+      if (visitedInterfaces.add(interfaceDoc)) {
+        for (MethodDoc methodDoc : interfaceDoc.methods(false)) {
+          preloadMethod(methodDoc);
+        }
+        preloadInterfaces(interfaceDoc.interfaces(), visitedInterfaces);
+      }
+    }
+  }
+
+  /**
+   * Resolves a type and the types it nests. Array types delegate their
+   * class, parameterized and wildcard views to their element type, so the
+   * element type is walked as well.
+   *
+   * @param type
+   *          the type.
+   */
+  private static void preloadType(Type type) {
+    type.qualifiedTypeName();
+    type.simpleTypeName();
+    type.dimension();
+    type.asClassDoc();
+    WildcardType wildcardType = type.asWildcardType();
+    if (wildcardType != null) {
+      for (Type bound : wildcardType.extendsBounds()) {
+        preloadType(bound);
+      }
+      for (Type bound : wildcardType.superBounds()) {
+        preloadType(bound);
+      }
+    }
+    ParameterizedType parameterizedType = type.asParameterizedType();
+    if (parameterizedType != null) {
+      for (Type typeArgument : parameterizedType.typeArguments()) {
+        preloadType(typeArgument);
+      }
+    }
+  }
+
+  /**
+   * Gets the number of indexed classes.
+   *
+   * @return the number of indexed classes.
+   */
+  public int size() {
+    return classDocs.length;
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2005-2016 Vincent Vandenschrick. All rights reserved.
+ *
+ *  This file is part of the Jspresso framework.
+ *
+ *  Jspresso is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Jspresso is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with Jspresso.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jspresso.beandocbook;
+
+import java.io.IOException;
+
+/**
+ * Receives the DocBook structure produced by the DocBook doclet, either to
+ * write it as text or to stream it as events to an in-process XML pipeline.
+ *
+ * @version $LastChangedRevision: 3701 $
+ * @author Vincent Vandenschrick
+ */
+public interface DocbookSink {
+
+  /**
+   * Starts the document.
+   *
+   * @throws IOException
+   *           whenever the sink fails.
+   */
+  void startDocument() throws IOException;
+
+  /**
+   * Ends the document.
+   *
+   * @throws IOException
+   *           whenever the sink fails.
+   */
+  void endDocument() throws IOException;
+
+  /**
+   * Starts an element.
+   *
+   * @param name
+   *          the element name.
+   * @param attributes
+   *          the attribute names and values, alternated.
+   * @throws IOException
+   *           whenever the sink fails.
+   */
+  void startElement(String name, String... attributes) throws IOException;
+
+  /**
+   * Ends an element.
+   *
+   * @param name
+   *          the element name.
+   * @throws IOException
+   *           whenever the sink fails.
+   */
+  void endElement(String name) throws IOException;
+
+  /**
+   * Writes an empty element.
+   *
+   * @param name
+   *          the element name.
+   * @param attributes
+   *          the attribute names and values, alternated.
+   * @throws IOException
+   *           whenever the sink fails.
+   */
+  void emptyElement(String name, String... attributes) throws IOException;
+
+  /**
+   * Writes character data.
+   *
+   * @param text
+   *          the text.
+   * @throws IOException
+   *           whenever the sink fails.
+   */
+  void characters(String text) throws IOException;
+
+  /**
+   * Writes a DocBook markup fragment, e.g. a converted javadoc comment or a
+   * link. The fragment may close and reopen the enclosing elements.
+   *
+   * @param markup
+   *          the markup.
+   * @throws IOException
+   *           whenever the sink fails.
+   */
+  void markup(String markup) throws IOException;
+
+  /**
+   * Writes a processing instruction.
+   *
+   * @param target
+   *          the processing instruction target.
+   * @param data
+   *          the processing instruction data.
+   * @throws IOException
+   *           whenever the sink fails.
+   */
+  void processingInstruction(String target, String data) throws IOException;
+
+  /**
+   * Ends a line of the text layout. Event sinks ignore it.
+   *
+   * @throws IOException
+   *           whenever the sink fails.
+   */
+  void endLine() throws IOException;
+}
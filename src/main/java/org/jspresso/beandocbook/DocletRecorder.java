@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2005-2016 Vincent Vandenschrick. All rights reserved.
+ *
+ *  This file is part of the Jspresso framework.
+ *
+ *  Jspresso is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Jspresso is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with Jspresso.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jspresso.beandocbook;
+
+/**
+ * Records the phases of a doclet run. Each phase is begun, returning an event
+ * handle, and ended with its measures ; a null handle means the phase is not
+ * recorded, so that the doclet skips computing its measures. This default
+ * implementation records nothing. On a JVM shipping Java Flight Recorder, the
+ * phases are recorded as JFR events.
+ *
+ * @version $LastChangedRevision: 3701 $
+ * @author Vincent Vandenschrick
+ */
+public class DocletRecorder {
+
+  private static final DocletRecorder INSTANCE = createInstance();
+
+  /**
+   * Constructs a new <code>DocletRecorder</code> instance.
+   */
+  protected DocletRecorder() {
+    // Records nothing.
+  }
+
+  /**
+   * Gets the recorder of the running JVM.
+   *
+   * @return the JFR recorder if Java Flight Recorder is available, a recorder
+   * recording nothing otherwise.
+   */
+  public static DocletRecorder getInstance() {
+    return INSTANCE;
+  }
+
+  private static DocletRecorder createInstance() {
+    try {
+      Class.forName("jdk.jfr.Event");
+      return (DocletRecorder) Class.forName(DocletRecorder.class.getPackage().getName() + ".JfrDocletRecorder")
+                                   .newInstance();
+    } catch (Throwable ex) {
+      // Java Flight Recorder is not available.
+      return new DocletRecorder();
+    }
+  }
+
+  /**
+   * Begins parsing the options.
+   *
+   * @return the event handle or null if not recorded.
+   */
+  public Object beginOptions() {
+    return null;
+  }
+
+  /**
+   * Ends parsing the options.
+   *
+   * @param event
+   *          the event handle.
+   * @param optionCount
+   *          the number of options.
+   * @param configSetCount
+   *          the number of config sets.
+   */
+  public void endOptions(Object event, int optionCount, int configSetCount) {
+    // Records nothing.
+  }
+
+  /**
+   * Begins building the class hierarchy index.
+   *
+   * @return the event handle or null if not recorded.
+   */
+  public Object beginHierarchy() {
+    return null;
+  }
+
+  /**
+   * Ends building the class hierarchy index.
+   *
+   * @param event
+   *          the event handle.
+   * @param classCount
+   *          the number of indexed classes.
+   * @param lazy
+   *          whether the hierarchy is materialized lazily.
+   * @param preloaded
+   *          whether the javadoc model was preloaded for concurrent reads.
+   */
+  public void endHierarchy(Object event, int classCount, boolean lazy, boolean preloaded) {
+    // Records nothing.
+  }
+
+  /**
+   * Begins generating a config set.
+   *
+   * @return the event handle or null if not recorded.
+   */
+  public Object beginConfigSet() {
+    return null;
+  }
+
+  /**
+   * Ends generating a config set.
+   *
+   * @param event
+   *          the event handle.
+   * @param rootClassName
+   *          the root class of the config set.
+   * @param documentedClassCount
+   *          the number of documented classes.
+   * @param outputCount
+   *          the number of outputs.
+   * @param bytesWritten
+   *          the size of the outputs.
+   */
+  public void endConfigSet(Object event, String rootClassName, int documentedClassCount, int outputCount,
+                           long bytesWritten) {
+    // Records nothing.
+  }
+
+  /**
+   * Begins rendering a class section.
+   *
+   * @return the event handle or null if not recorded.
+   */
+  public Object beginClassSection() {
+    return null;
+  }
+
+  /**
+   * Ends rendering a class section.
+   *
+   * @param event
+   *          the event handle.
+   * @param className
+   *          the qualified name of the class.
+   * @param format
+   *          the output extension.
+   * @param propertyCount
+   *          the number of documented properties.
+   * @param bytesWritten
+   *          the size of the section or -1 if not known.
+   * @param cached
+   *          whether the section was taken from the fragment cache.
+   */
+  public void endClassSection(Object event, String className, String format, int propertyCount, long bytesWritten,
+                              boolean cached) {
+    // Records nothing.
+  }
+
+  /**
+   * Begins flushing or closing an output.
+   *
+   * @return the event handle or null if not recorded.
+   */
+  public Object beginOutput() {
+    return null;
+  }
+
+  /**
+   * Ends flushing or closing an output.
+   *
+   * @param event
+   *          the event handle.
+   * @param operation
+   *          <code>flush</code> or <code>close</code>.
+   * @param outputFile
+   *          the output file.
+   * @param bytesWritten
+   *          the number of bytes written to the output so far.
+   */
+  public void endOutput(Object event, String operation, String outputFile, long bytesWritten) {
+    // Records nothing.
+  }
+}
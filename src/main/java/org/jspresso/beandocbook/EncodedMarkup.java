@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2005-2016 Vincent Vandenschrick. All rights reserved.
+ *
+ *  This file is part of the Jspresso framework.
+ *
+ *  Jspresso is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Jspresso is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with Jspresso.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jspresso.beandocbook;
+
+import java.nio.charset.Charset;
+
+/**
+ * Static markup along with its UTF-8 encoding, computed once, so that it is
+ * copied as is to the output.
+ *
+ * @version $LastChangedRevision: 3701 $
+ * @author Vincent Vandenschrick
+ */
+public final class EncodedMarkup {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final String text;
+  private final byte[] bytes;
+
+  /**
+   * Constructs a new <code>EncodedMarkup</code> instance.
+   *
+   * @param text
+   *          the markup.
+   */
+  public EncodedMarkup(String text) {
+    this.text = text;
+    this.bytes = text.getBytes(UTF_8);
+  }
+
+  /**
+   * Gets the markup.
+   *
+   * @return the markup.
+   */
+  public String getText() {
+    return text;
+  }
+
+  /**
+   * Gets the UTF-8 encoded markup. The returned array must not be modified.
+   *
+   * @return the encoded markup.
+   */
+  byte[] getBytes() {
+    return bytes;
+  }
+
+  @Override
+  public String toString() {
+    return text;
+  }
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) 2005-2016 Vincent Vandenschrick. All rights reserved.
+ *
+ *  This file is part of the Jspresso framework.
+ *
+ *  Jspresso is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Jspresso is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with Jspresso.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jspresso.beandocbook;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent cache of rendered class sections, keyed by a fingerprint of
+ * everything the rendering of a class section depends on. A cache file holds
+ * the fragments of one output file ; it is tagged with a version key so that
+ * a different doclet version or output format invalidates it. Only the
+ * fragments used by the last run are saved back, so stale entries are
+ * evicted, up to a maximum size over which the largest fragments are
+ * dropped first.
+ *
+ * @version $LastChangedRevision: 3701 $
+ * @author Vincent Vandenschrick
+ */
+public class FragmentCache {
+
+  /**
+   * The version of the cache file layout and of the rendered markup. It must
+   * be increased whenever the rendering changes.
+   */
+  public static final int FORMAT_VERSION = 1;
+
+  private static final int     MAGIC = 0x42444643;
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final File                file;
+  private final String              versionKey;
+  private final long                maxSize;
+  private final Map<String, String> loadedFragments;
+  private final Map<String, String> usedFragments;
+  private int                       hits;
+  private int                       misses;
+
+  /**
+   * Constructs a new <code>FragmentCache</code> instance.
+   *
+   * @param file
+   *          the cache file.
+   * @param versionKey
+   *          the key identifying the doclet version and output format.
+   * @param maxSize
+   *          the maximum size in bytes of the fragments saved.
+   */
+  public FragmentCache(File file, String versionKey, long maxSize) {
+    this.file = file;
+    this.versionKey = FORMAT_VERSION + "|" + versionKey;
+    this.maxSize = maxSize;
+    this.loadedFragments = new ConcurrentHashMap<String, String>();
+    this.usedFragments = new ConcurrentHashMap<String, String>();
+  }
+
+  /**
+   * Loads the cache file, if any and of the same version. A corrupted cache
+   * file is ignored.
+   */
+  public void load() {
+    if (!file.isFile()) {
+      return;
+    }
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      if (in.readInt() != MAGIC || !versionKey.equals(in.readUTF())) {
+        return;
+      }
+      long fileSize = file.length();
+      int count = in.readInt();
+      if (count < 0 || count > fileSize) {
+        throw new IOException("Corrupted fragment count " + count);
+      }
+      for (int i = 0; i < count; i++) {
+        String fingerprint = in.readUTF();
+        int length = in.readInt();
+        if (length < 0 || length > fileSize) {
+          throw new IOException("Corrupted fragment length " + length);
+        }
+        byte[] fragment = new byte[length];
+        in.readFully(fragment);
+        loadedFragments.put(fingerprint, new String(fragment, UTF_8));
+      }
+    } catch (IOException ex) {
+      loadedFragments.clear();
+    } finally {
+      closeQuietly(in);
+    }
+  }
+
+  /**
+   * Gets a cached fragment.
+   *
+   * @param fingerprint
+   *          the fragment fingerprint.
+   * @return the fragment or null if not cached.
+   */
+  public synchronized String get(String fingerprint) {
+    String fragment = usedFragments.get(fingerprint);
+    if (fragment == null) {
+      fragment = loadedFragments.get(fingerprint);
+      if (fragment != null) {
+        usedFragments.put(fingerprint, fragment);
+      }
+    }
+    if (fragment == null) {
+      misses++;
+    } else {
+      hits++;
+    }
+    return fragment;
+  }
+
+  /**
+   * Caches a fragment.
+   *
+   * @param fingerprint
+   *          the fragment fingerprint.
+   * @param fragment
+   *          the rendered fragment.
+   */
+  public void put(String fingerprint, String fragment) {
+    usedFragments.put(fingerprint, fragment);
+  }
+
+  /**
+   * Saves the fragments used since loading, dropping the others. Whenever
+   * they exceed the maximum size, the smallest fragments are kept, so that
+   * the most class sections are spared, ties being broken by fingerprint.
+   *
+   * @throws IOException
+   *           whenever an I/O error occurs.
+   */
+  public void save() throws IOException {
+    List<Map.Entry<String, byte[]>> candidates = new ArrayList<Map.Entry<String, byte[]>>();
+    for (Map.Entry<String, String> entry : usedFragments.entrySet()) {
+      candidates.add(new AbstractMap.SimpleEntry<String, byte[]>(entry.getKey(),
+          entry.getValue().getBytes(UTF_8)));
+    }
+    Collections.sort(candidates, new Comparator<Map.Entry<String, byte[]>>() {
+      @Override
+      public int compare(Map.Entry<String, byte[]> e1, Map.Entry<String, byte[]> e2) {
+        int lengthDiff = Integer.compare(e1.getValue().length, e2.getValue().length);
+        return lengthDiff != 0 ? lengthDiff : e1.getKey().compareTo(e2.getKey());
+      }
+    });
+    Map<String, byte[]> saved = new LinkedHashMap<String, byte[]>();
+    long size = 0;
+    for (Map.Entry<String, byte[]> candidate : candidates) {
+      byte[] fragment = candidate.getValue();
+      if (size + fragment.length > maxSize) {
+        continue;
+      }
+      size += fragment.length;
+      saved.put(candidate.getKey(), fragment);
+    }
+    file.getParentFile().mkdirs();
+    File tmpFile = new File(file.getPath() + ".tmp");
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+    try {
+      out.writeInt(MAGIC);
+      out.writeUTF(versionKey);
+      out.writeInt(saved.size());
+      for (Map.Entry<String, byte[]> entry : saved.entrySet()) {
+        out.writeUTF(entry.getKey());
+        out.writeInt(entry.getValue().length);
+        out.write(entry.getValue());
+      }
+    } finally {
+      out.close();
+    }
+    if (!tmpFile.renameTo(file)) {
+      file.delete();
+      if (!tmpFile.renameTo(file)) {
+        throw new IOException("Could not replace " + file);
+      }
+    }
+  }
+
+  /**
+   * Gets the number of cache hits.
+   *
+   * @return the number of cache hits.
+   */
+  public synchronized int getHits() {
+    return hits;
+  }
+
+  /**
+   * Gets the number of cache misses.
+   *
+   * @return the number of cache misses.
+   */
+  public synchronized int getMisses() {
+    return misses;
+  }
+
+  private static void closeQuietly(DataInputStream in) {
+    if (in != null) {
+      try {
+        in.close();
+      } catch (IOException ex) {
+        // Ignored.
+      }
+    }
+  }
+
+  /**
+   * Incremental computation of a fragment fingerprint.
+   */
+  public static class Fingerprint {
+
+    private final MessageDigest digest;
+
+    /**
+     * Constructs a new <code>Fingerprint</code> instance.
+     */
+    public Fingerprint() {
+      try {
+        digest = MessageDigest.getInstance("SHA-1");
+      } catch (NoSuchAlgorithmException ex) {
+        throw new IllegalStateException(ex);
+      }
+    }
+
+    /**
+     * Adds a value to the fingerprint.
+     *
+     * @param value
+     *          the value, possibly null.
+     * @return this.
+     */
+    public Fingerprint add(String value) {
+      if (value == null) {
+        digest.update((byte) 0);
+      } else {
+        digest.update((byte) 1);
+        digest.update(value.getBytes(UTF_8));
+        digest.update((byte) 0);
+      }
+      return this;
+    }
+
+    /**
+     * Adds a flag to the fingerprint.
+     *
+     * @param value
+     *          the flag.
+     * @return this.
+     */
+    public Fingerprint add(boolean value) {
+      digest.update(value ? (byte) 2 : (byte) 3);
+      return this;
+    }
+
+    /**
+     * Completes the fingerprint.
+     *
+     * @return the hexadecimal fingerprint.
+     */
+    public String toHex() {
+      byte[] bytes = digest.digest();
+      StringBuilder hex = new StringBuilder(bytes.length * 2);
+      for (byte b : bytes) {
+        hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+      return hex.toString();
+    }
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2005-2016 Vincent Vandenschrick. All rights reserved.
+ *
+ *  This file is part of the Jspresso framework.
+ *
+ *  Jspresso is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Jspresso is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with Jspresso.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jspresso.beandocbook;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * A writer that records the text written to it interleaved with fragments
+ * that are still being rendered elsewhere. The whole content is then stitched
+ * in its recording order into a target writer.
+ *
+ * @version $LastChangedRevision: 3701 $
+ * @author Vincent Vandenschrick
+ */
+public class FragmentWriter extends Writer {
+
+  private List<Object>  parts;
+  private StringBuilder current;
+
+  /**
+   * Constructs a new <code>FragmentWriter</code> instance.
+   */
+  public FragmentWriter() {
+    parts = new ArrayList<Object>();
+    current = new StringBuilder();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void write(char[] cbuf, int off, int len) {
+    current.append(cbuf, off, len);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void write(String str, int off, int len) {
+    current.append(str, off, off + len);
+  }
+
+  /**
+   * Appends a fragment being rendered at the current position.
+   *
+   * @param fragment
+   *          the future fragment content.
+   */
+  public void appendFragment(Future<String> fragment) {
+    if (current.length() > 0) {
+      parts.add(current.toString());
+      current.setLength(0);
+    }
+    parts.add(fragment);
+  }
+
+  /**
+   * Writes the recorded content to a target writer, waiting for the fragments
+   * to be rendered.
+   *
+   * @param target
+   *          the target writer.
+   * @throws IOException
+   *           whenever an I/O or a fragment rendering error occurs.
+   */
+  @SuppressWarnings("unchecked")
+  public void writeTo(Writer target) throws IOException {
+    for (Object part : parts) {
+      if (part instanceof Future<?>) {
+        try {
+          target.write(((Future<String>) part).get());
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted while waiting for a fragment", ex);
+        } catch (ExecutionException ex) {
+          if (ex.getCause() instanceof IOException) {
+            throw (IOException) ex.getCause();
+          }
+          throw new IOException("Fragment rendering failed", ex.getCause());
+        }
+      } else {
+        target.write((String) part);
+      }
+    }
+    target.write(current.toString());
+    parts.clear();
+    current.setLength(0);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void flush() {
+    // Nothing to flush until written to the target.
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void close() {
+    // Nothing to close.
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2005-2016 Vincent Vandenschrick. All rights reserved.
+ *
+ *  This file is part of the Jspresso framework.
+ *
+ *  Jspresso is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Jspresso is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with Jspresso.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jspresso.beandocbook;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.sun.javadoc.ClassDoc;
+import com.sun.javadoc.MethodDoc;
+import com.sun.javadoc.Tag;
+
+/**
+ * Run-wide cache of the documentation <code>{&#64;inheritDoc}</code> expands
+ * to. The override chain of a method is only walked the first time its
+ * inherited documentation is requested.
+ *
+ * @version $LastChangedRevision: 3701 $
+ * @author Vincent Vandenschrick
+ */
+public class InheritDocCache {
+
+  private static final Tag[] NO_TAGS = new Tag[0];
+
+  private final Map<String, Tag[]> inheritedTags;
+
+  /**
+   * Constructs a new <code>InheritDocCache</code> instance.
+   */
+  public InheritDocCache() {
+    inheritedTags = new ConcurrentHashMap<String, Tag[]>();
+  }
+
+  /**
+   * Gets the inline tags inherited by a method, nested
+   * <code>{&#64;inheritDoc}</code> tags being already expanded.
+   *
+   * @param methodDoc
+   *          the method doc.
+   * @return the inherited inline tags, empty if none.
+   */
+  public Tag[] getInheritedTags(MethodDoc methodDoc) {
+    String key = methodDoc.containingClass().qualifiedName() + "#" + methodDoc.name() + methodDoc.signature();
+    Tag[] tags = inheritedTags.get(key);
+    if (tags == null) {
+      // The javadoc model is not thread-safe when navigating to not yet visited classes.
+      synchronized (this) {
+        tags = inheritedTags.get(key);
+        if (tags == null) {
+          tags = computeInheritedTags(methodDoc);
+          inheritedTags.put(key, tags);
+        }
+      }
+    }
+    return tags;
+  }
+
+  private Tag[] computeInheritedTags(MethodDoc methodDoc) {
+    MethodDoc ancestor = findDocumentedAncestor(methodDoc);
+    if (ancestor == null) {
+      return NO_TAGS;
+    }
+    List<Tag> tags = new ArrayList<Tag>();
+    for (Tag tag : ancestor.inlineTags()) {
+      if ("@inheritDoc".equals(tag.name())) {
+        for (Tag inheritedTag : getInheritedTags(ancestor)) {
+          tags.add(inheritedTag);
+        }
+      } else {
+        tags.add(tag);
+      }
+    }
+    return tags.toArray(new Tag[tags.size()]);
+  }
+
+  private MethodDoc findDocumentedAncestor(MethodDoc methodDoc) {
+    for (MethodDoc overridden = methodDoc.overriddenMethod(); overridden != null;
+         overridden = overridden.overriddenMethod()) {
+      if (overridden.inlineTags().length > 0) {
+        return overridden;
+      }
+    }
+    for (ClassDoc classDoc = methodDoc.containingClass(); classDoc != null; classDoc = classDoc.superclass()) {
+      MethodDoc found = findInInterfaces(classDoc.interfaces(), methodDoc);
+      if (found != null) {
+        return found;
+      }
+    }
+    return null;
+  }
+
+  private MethodDoc findInInterfaces(ClassDoc[] interfaces, MethodDoc methodDoc) {
+    for (ClassDoc interfaceDoc : interfaces) {
+      for (MethodDoc candidate : interfaceDoc.methods(false)) {
+        if (candidate.name().equals(methodDoc.name()) && candidate.signature().equals(methodDoc.signature())
+            && candidate.inlineTags().length > 0) {
+          return candidate;
+        }
+      }
+      MethodDoc found = findInInterfaces(interfaceDoc.interfaces(), methodDoc);
+      if (found != null) {
+        return found;
+      }
+    }
+    return null;
+  }
+}
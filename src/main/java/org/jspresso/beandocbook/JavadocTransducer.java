@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2005-2016 Vincent Vandenschrick. All rights reserved.
+ *
+ *  This file is part of the Jspresso framework.
+ *
+ *  Jspresso is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Jspresso is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with Jspresso.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jspresso.beandocbook;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Single-pass converter of javadoc comment HTML. Supported tags are matched
+ * case-insensitively, whatever their attributes, and replaced by their
+ * translation while the rest of the comment is copied as is. The
+ * <code>{&#64;code}</code> inline tags are turned into <code>code</code>
+ * elements, nested braces included.
+ *
+ * @version $LastChangedRevision: 3701 $
+ * @author Vincent Vandenschrick
+ */
+public class JavadocTransducer {
+
+  /**
+   * The HTML to DocBook transducer.
+   */
+  public static final JavadocTransducer DOCBOOK;
+
+  /**
+   * The transducer that only converts <code>{&#64;code}</code> inline tags and
+   * leaves HTML untouched.
+   */
+  public static final JavadocTransducer HTML = new JavadocTransducer(new HashMap<String, String>());
+
+  private static final String CODE_TAG = "{@code";
+
+  static {
+    Map<String, String> docbookTags = new HashMap<String, String>();
+    docbookTags.put("p", "</para><para>");
+    docbookTags.put("/p", "");
+    docbookTags.put("br", "</para><para>");
+    docbookTags.put("i", "<emphasis>");
+    docbookTags.put("/i", "</emphasis>");
+    docbookTags.put("b", "<emphasis role='bold'>");
+    docbookTags.put("/b", "</emphasis>");
+    docbookTags.put("ul", "<itemizedlist>");
+    docbookTags.put("/ul", "</itemizedlist>");
+    docbookTags.put("ol", "<orderedlist>");
+    docbookTags.put("/ol", "</orderedlist>");
+    docbookTags.put("li", "<listitem><para>");
+    docbookTags.put("/li", "</para></listitem>");
+    docbookTags.put("pre", "<programlisting>");
+    docbookTags.put("/pre", "</programlisting>");
+    DOCBOOK = new JavadocTransducer(docbookTags);
+  }
+
+  private final Map<String, String> tagTranslations;
+  private final int                 maxTagLength;
+
+  /**
+   * Constructs a new <code>JavadocTransducer</code> instance.
+   *
+   * @param tagTranslations
+   *          the translations keyed by lower case tag name, prefixed with
+   *          <code>/</code> for closing tags.
+   */
+  public JavadocTransducer(Map<String, String> tagTranslations) {
+    this.tagTranslations = new HashMap<String, String>(tagTranslations);
+    int max = 0;
+    for (String tag : tagTranslations.keySet()) {
+      max = Math.max(max, tag.length());
+    }
+    this.maxTagLength = max;
+  }
+
+  /**
+   * Converts a javadoc comment.
+   *
+   * @param source
+   *          the comment text.
+   * @return the converted text.
+   */
+  public String convert(String source) {
+    StringBuilder out = new StringBuilder(source.length() + 64);
+    convert(source, out);
+    return out.toString();
+  }
+
+  /**
+   * Converts a javadoc comment, appending the result to a buffer.
+   *
+   * @param source
+   *          the comment text.
+   * @param out
+   *          the buffer to append to.
+   */
+  public void convert(String source, StringBuilder out) {
+    int length = source.length();
+    int copyFrom = 0;
+    int i = 0;
+    while (i < length) {
+      char c = source.charAt(i);
+      int end = -1;
+      if (c == '<' && maxTagLength > 0) {
+        end = translateTag(source, i, out, copyFrom);
+      } else if (c == '{') {
+        end = translateCode(source, i, out, copyFrom);
+      }
+      if (end < 0) {
+        i++;
+      } else {
+        i = end;
+        copyFrom = end;
+      }
+    }
+    out.append(source, copyFrom, length);
+  }
+
+  /**
+   * Translates the tag starting at <code>start</code> if it is supported.
+   *
+   * @return the index following the tag or -1 if not supported.
+   */
+  private int translateTag(String source, int start, StringBuilder out, int copyFrom) {
+    int length = source.length();
+    int nameStart = start + 1;
+    int nameEnd = nameStart;
+    if (nameEnd < length && source.charAt(nameEnd) == '/') {
+      nameEnd++;
+    }
+    while (nameEnd < length && nameEnd - nameStart <= maxTagLength && isAsciiLetter(source.charAt(nameEnd))) {
+      nameEnd++;
+    }
+    if (nameEnd >= length || nameEnd - nameStart > maxTagLength) {
+      return -1;
+    }
+    char next = source.charAt(nameEnd);
+    if (next != '>' && next != '/' && !Character.isWhitespace(next)) {
+      return -1;
+    }
+    String translation = tagTranslations.get(toLowerAscii(source, nameStart, nameEnd));
+    if (translation == null) {
+      return -1;
+    }
+    int tagEnd = source.indexOf('>', nameEnd);
+    if (tagEnd < 0) {
+      return -1;
+    }
+    out.append(source, copyFrom, start);
+    out.append(translation);
+    return tagEnd + 1;
+  }
+
+  /**
+   * Translates the <code>{&#64;code}</code> inline tag starting at
+   * <code>start</code> if any.
+   *
+   * @return the index following the inline tag or -1 if there is none.
+   */
+  private int translateCode(String source, int start, StringBuilder out, int copyFrom) {
+    int contentStart = start + CODE_TAG.length() + 1;
+    if (contentStart > source.length() || !source.startsWith(CODE_TAG, start) || !Character.isWhitespace(
+        source.charAt(contentStart - 1))) {
+      return -1;
+    }
+    int depth = 1;
+    for (int i = contentStart; i < source.length(); i++) {
+      char c = source.charAt(i);
+      if (c == '{') {
+        depth++;
+      } else if (c == '}') {
+        depth--;
+        if (depth == 0) {
+          out.append(source, copyFrom, start);
+          out.append("<code>").append(source, contentStart, i).append("</code>");
+          return i + 1;
+        }
+      }
+    }
+    return -1;
+  }
+
+  private static boolean isAsciiLetter(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+  }
+
+  private static String toLowerAscii(String source, int start, int end) {
+    char[] chars = new char[end - start];
+    for (int i = start; i < end; i++) {
+      char c = source.charAt(i);
+      chars[i - start] = c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+    return new String(chars);
+  }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2005-2016 Vincent Vandenschrick. All rights reserved.
+ *
+ *  This file is part of the Jspresso framework.
+ *
+ *  Jspresso is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Jspresso is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with Jspresso.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jspresso.beandocbook;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Recorder emitting the doclet phases as Java Flight Recorder events, under
+ * the <code>Jspresso / Bean Doclet</code> category. No event is created until
+ * the flight recorder is initialized, and events of a disabled type are
+ * neither timed nor filled. Only loaded when the JVM ships JFR.
+ *
+ * @version $LastChangedRevision: 3701 $
+ * @author Vincent Vandenschrick
+ */
+public class JfrDocletRecorder extends DocletRecorder {
+
+  private static <T extends Event> T begin(T event) {
+    if (!event.isEnabled()) {
+      return null;
+    }
+    event.begin();
+    return event;
+  }
+
+  private static boolean isRecording() {
+    // Instantiating a first event would start the recorder otherwise.
+    return FlightRecorder.isInitialized();
+  }
+
+  @Override
+  public Object beginOptions() {
+    if (!isRecording()) {
+      return null;
+    }
+    return begin(new OptionsEvent());
+  }
+
+  @Override
+  public void endOptions(Object event, int optionCount, int configSetCount) {
+    if (event != null) {
+      OptionsEvent optionsEvent = (OptionsEvent) event;
+      optionsEvent.optionCount = optionCount;
+      optionsEvent.configSetCount = configSetCount;
+      optionsEvent.commit();
+    }
+  }
+
+  @Override
+  public Object beginHierarchy() {
+    if (!isRecording()) {
+      return null;
+    }
+    return begin(new HierarchyEvent());
+  }
+
+  @Override
+  public void endHierarchy(Object event, int classCount, boolean lazy, boolean preloaded) {
+    if (event != null) {
+      HierarchyEvent hierarchyEvent = (HierarchyEvent) event;
+      hierarchyEvent.classCount = classCount;
+      hierarchyEvent.lazy = lazy;
+      hierarchyEvent.preloaded = preloaded;
+      hierarchyEvent.commit();
+    }
+  }
+
+  @Override
+  public Object beginConfigSet() {
+    if (!isRecording()) {
+      return null;
+    }
+    return begin(new ConfigSetEvent());
+  }
+
+  @Override
+  public void endConfigSet(Object event, String rootClassName, int documentedClassCount, int outputCount,
+                           long bytesWritten) {
+    if (event != null) {
+      ConfigSetEvent configSetEvent = (ConfigSetEvent) event;
+      configSetEvent.rootClassName = rootClassName;
+      configSetEvent.documentedClassCount = documentedClassCount;
+      configSetEvent.outputCount = outputCount;
+      configSetEvent.bytesWritten = bytesWritten;
+      configSetEvent.commit();
+    }
+  }
+
+  @Override
+  public Object beginClassSection() {
+    if (!isRecording()) {
+      return null;
+    }
+    return begin(new ClassSectionEvent());
+  }
+
+  @Override
+  public void endClassSection(Object event, String className, String format, int propertyCount, long bytesWritten,
+                              boolean cached) {
+    if (event != null) {
+      ClassSectionEvent classSectionEvent = (ClassSectionEvent) event;
+      classSectionEvent.className = className;
+      classSectionEvent.format = format;
+      classSectionEvent.propertyCount = propertyCount;
+      classSectionEvent.bytesWritten = bytesWritten;
+      classSectionEvent.cached = cached;
+      classSectionEvent.commit();
+    }
+  }
+
+  @Override
+  public Object beginOutput() {
+    if (!isRecording()) {
+      return null;
+    }
+    return begin(new OutputEvent());
+  }
+
+  @Override
+  public void endOutput(Object event, String operation, String outputFile, long bytesWritten) {
+    if (event != null) {
+      OutputEvent outputEvent = (OutputEvent) event;
+      outputEvent.operation = operation;
+      outputEvent.outputFile = outputFile;
+      outputEvent.bytesWritten = bytesWritten;
+      outputEvent.commit();
+    }
+  }
+
+  /**
+   * Parsing of the doclet options.
+   */
+  @Name("org.jspresso.beandocbook.Options")
+  @Label("Bean Doclet Options")
+  @Category({"Jspresso", "Bean Doclet"})
+  @Description("Parsing of the doclet options")
+  static final class OptionsEvent extends Event {
+
+    @Label("Options")
+    private int optionCount;
+
+    @Label("Config Sets")
+    private int configSetCount;
+  }
+
+  /**
+   * Building of the class hierarchy index.
+   */
+  @Name("org.jspresso.beandocbook.Hierarchy")
+  @Label("Bean Doclet Hierarchy")
+  @Category({"Jspresso", "Bean Doclet"})
+  @Description("Building of the class hierarchy index")
+  static final class HierarchyEvent extends Event {
+
+    @Label("Classes")
+    private int     classCount;
+
+    @Label("Lazy")
+    private boolean lazy;
+
+    @Label("Preloaded")
+    private boolean preloaded;
+  }
+
+  /**
+   * Generation of the outputs of a config set.
+   */
+  @Name("org.jspresso.beandocbook.ConfigSet")
+  @Label("Bean Doclet Config Set")
+  @Category({"Jspresso", "Bean Doclet"})
+  @Description("Generation of the outputs of a config set")
+  static final class ConfigSetEvent extends Event {
+
+    @Label("Root Class")
+    private String rootClassName;
+
+    @Label("Documented Classes")
+    private int    documentedClassCount;
+
+    @Label("Outputs")
+    private int    outputCount;
+
+    @Label("Bytes Written")
+    @DataAmount
+    private long   bytesWritten;
+  }
+
+  /**
+   * Rendering of a class section.
+   */
+  @Name("org.jspresso.beandocbook.ClassSection")
+  @Label("Bean Doclet Class Section")
+  @Category({"Jspresso", "Bean Doclet"})
+  @Description("Rendering of a class section, -1 bytes meaning streamed events")
+  static final class ClassSectionEvent extends Event {
+
+    @Label("Class")
+    private String  className;
+
+    @Label("Format")
+    private String  format;
+
+    @Label("Properties")
+    private int     propertyCount;
+
+    @Label("Bytes Written")
+    @DataAmount
+    private long    bytesWritten;
+
+    @Label("Cached")
+    private boolean cached;
+  }
+
+  /**
+   * Flushing or closing of an output.
+   */
+  @Name("org.jspresso.beandocbook.Output")
+  @Label("Bean Doclet Output")
+  @Category({"Jspresso", "Bean Doclet"})
+  @Description("Flushing or closing of an output, waiting for its I/O thread if any")
+  static final class OutputEvent extends Event {
+
+    @Label("Operation")
+    private String operation;
+
+    @Label("Output File")
+    private String outputFile;
+
+    @Label("Bytes Written")
+    @DataAmount
+    private long   bytesWritten;
+  }
+}
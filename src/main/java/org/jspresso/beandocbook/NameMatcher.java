@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2005-2016 Vincent Vandenschrick. All rights reserved.
+ *
+ *  This file is part of the Jspresso framework.
+ *
+ *  Jspresso is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Jspresso is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with Jspresso.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jspresso.beandocbook;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Compiled matcher for a colon-separated list of dotted name filters. Each
+ * filter is either :
+ * <ul>
+ * <li><code>=name</code> to match exactly <code>name</code>,</li>
+ * <li><code>^prefix</code> to match the names starting with
+ * <code>prefix</code>,</li>
+ * <li>a glob when containing <code>*</code> or <code>?</code>, where
+ * <code>*</code> and <code>?</code> do not cross dots and <code>**</code>
+ * matches any sequence,</li>
+ * <li>a plain name, matched according to the default semantics of the filter
+ * list : exactly or as a substring.</li>
+ * </ul>
+ * Exact, prefix and substring filters are compiled together into a single
+ * Aho-Corasick automaton run over the name framed by begin and end markers, so
+ * that a name is matched in a single scan whatever the number of filters. Globs
+ * are compiled into a single regular expression.
+ *
+ * @version $LastChangedRevision: 3701 $
+ * @author Vincent Vandenschrick
+ */
+public final class NameMatcher {
+
+  private static final char BEGIN = '\u0000';
+  private static final char END   = '\u0001';
+
+  private final int[]                 asciiClasses;
+  private final Map<Character, Integer> otherClasses;
+  private final int                   classCount;
+  private final int[]                 transitions;
+  private final boolean[]             accepting;
+  private final Pattern               globs;
+
+  private NameMatcher(List<String> patterns, Pattern globs) {
+    this.globs = globs;
+    asciiClasses = new int[128];
+    otherClasses = new HashMap<Character, Integer>();
+    int classes = 1;
+    for (String pattern : patterns) {
+      for (int i = 0; i < pattern.length(); i++) {
+        char c = pattern.charAt(i);
+        if (charClass(c) == 0) {
+          if (c < 128) {
+            asciiClasses[c] = classes++;
+          } else {
+            otherClasses.put(c, classes++);
+          }
+        }
+      }
+    }
+    classCount = classes;
+
+    // Trie of the patterns.
+    List<int[]> trie = new ArrayList<int[]>();
+    List<Boolean> ends = new ArrayList<Boolean>();
+    trie.add(newNode());
+    ends.add(Boolean.FALSE);
+    for (String pattern : patterns) {
+      int state = 0;
+      for (int i = 0; i < pattern.length(); i++) {
+        int cls = charClass(pattern.charAt(i));
+        if (trie.get(state)[cls] < 0) {
+          trie.get(state)[cls] = trie.size();
+          trie.add(newNode());
+          ends.add(Boolean.FALSE);
+        }
+        state = trie.get(state)[cls];
+      }
+      ends.set(state, Boolean.TRUE);
+    }
+
+    // Failure links turned into a complete transition table.
+    int states = trie.size();
+    transitions = new int[states * classCount];
+    accepting = new boolean[states];
+    int[] failures = new int[states];
+    Deque<Integer> queue = new ArrayDeque<Integer>();
+    accepting[0] = ends.get(0);
+    for (int cls = 0; cls < classCount; cls++) {
+      int next = trie.get(0)[cls];
+      if (next < 0) {
+        transitions[cls] = 0;
+      } else {
+        transitions[cls] = next;
+        failures[next] = 0;
+        queue.add(next);
+      }
+    }
+    while (!queue.isEmpty()) {
+      int state = queue.poll();
+      accepting[state] = ends.get(state) || accepting[failures[state]];
+      for (int cls = 0; cls < classCount; cls++) {
+        int next = trie.get(state)[cls];
+        if (next < 0) {
+          transitions[state * classCount + cls] = transitions[failures[state] * classCount + cls];
+        } else {
+          transitions[state * classCount + cls] = next;
+          failures[next] = transitions[failures[state] * classCount + cls];
+          queue.add(next);
+        }
+      }
+    }
+  }
+
+  private int[] newNode() {
+    int[] node = new int[classCount];
+    Arrays.fill(node, -1);
+    return node;
+  }
+
+  private int charClass(char c) {
+    if (c < 128) {
+      return asciiClasses[c];
+    }
+    Integer cls = otherClasses.get(c);
+    if (cls == null) {
+      return 0;
+    }
+    return cls;
+  }
+
+  /**
+   * Compiles a colon-separated list of filters.
+   *
+   * @param filters
+   *          the colon-separated filters.
+   * @param exactByDefault
+   *          whether plain filters match exactly rather than as substrings.
+   * @return the compiled matcher.
+   */
+  public static NameMatcher compile(String filters, boolean exactByDefault) {
+    List<String> patterns = new ArrayList<String>();
+    StringBuilder globRegex = new StringBuilder();
+    for (String filter : filters.split(":")) {
+      if (filter.startsWith("=")) {
+        patterns.add(BEGIN + filter.substring(1) + END);
+      } else if (filter.startsWith("^")) {
+        patterns.add(BEGIN + filter.substring(1));
+      } else if (filter.indexOf('*') >= 0 || filter.indexOf('?') >= 0) {
+        if (globRegex.length() > 0) {
+          globRegex.append('|');
+        }
+        globRegex.append("(?:").append(globToRegex(filter)).append(')');
+      } else if (exactByDefault) {
+        patterns.add(BEGIN + filter + END);
+      } else {
+        patterns.add(filter);
+      }
+    }
+    Pattern globs = null;
+    if (globRegex.length() > 0) {
+      globs = Pattern.compile(globRegex.toString());
+    }
+    return new NameMatcher(patterns, globs);
+  }
+
+  private static String globToRegex(String glob) {
+    StringBuilder regex = new StringBuilder();
+    int literalStart = 0;
+    for (int i = 0; i < glob.length(); i++) {
+      char c = glob.charAt(i);
+      if (c == '*' || c == '?') {
+        if (literalStart < i) {
+          regex.append(Pattern.quote(glob.substring(literalStart, i)));
+        }
+        if (c == '?') {
+          regex.append("[^.]");
+        } else if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+          regex.append(".*");
+          i++;
+        } else {
+          regex.append("[^.]*");
+        }
+        literalStart = i + 1;
+      }
+    }
+    if (literalStart < glob.length()) {
+      regex.append(Pattern.quote(glob.substring(literalStart)));
+    }
+    return regex.toString();
+  }
+
+  /**
+   * Tests a name against the filters.
+   *
+   * @param name
+   *          the dotted name to test.
+   * @return true if any filter matches.
+   */
+  public boolean matches(String name) {
+    int state = transitions[charClass(BEGIN)];
+    if (accepting[state]) {
+      return true;
+    }
+    for (int i = 0; i < name.length(); i++) {
+      state = transitions[state * classCount + charClass(name.charAt(i))];
+      if (accepting[state]) {
+        return true;
+      }
+    }
+    state = transitions[state * classCount + charClass(END)];
+    if (accepting[state]) {
+      return true;
+    }
+    return globs != null && globs.matcher(name).matches();
+  }
+}
@@ -0,0 +1,437 @@
+/*
+ * Copyright (c) 2005-2016 Vincent Vandenschrick. All rights reserved.
+ *
+ *  This file is part of the Jspresso framework.
+ *
+ *  Jspresso is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Jspresso is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with Jspresso.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jspresso.beandocbook;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Machine-readable report of a doclet run, written as JSON along with the
+ * outputs. It lists, for each config set, the classes visited, documented and
+ * skipped, the property rows and bytes written and the time spent in
+ * hierarchy classification, rendering and I/O, followed by the run-wide
+ * timings and the JVM heap and garbage collection figures.
+ *
+ * @version $LastChangedRevision: 3701 $
+ * @author Vincent Vandenschrick
+ */
+public class PerformanceReport {
+
+  /**
+   * The version of the report layout. It must be increased whenever a
+   * measure is renamed or removed.
+   */
+  public static final int FORMAT_VERSION = 1;
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final long                 startTime;
+  private final long                 startNanos;
+  private final Map<String, long[]>  startCollections;
+  private final Map<String, Map<String, String>> configSetsByName;
+  private final List<ConfigSetStats> configSets;
+  private long                       optionsNanos;
+  private long                       hierarchyNanos;
+  private int                        classCount;
+
+  /**
+   * Constructs a new <code>PerformanceReport</code> instance, starting the
+   * run at the given time.
+   *
+   * @param startNanos
+   *          the start of the run, as given by {@link System#nanoTime()}.
+   * @param configSetsByName
+   *          the config sets of the run, keyed by their name.
+   */
+  public PerformanceReport(long startNanos, Map<String, Map<String, String>> configSetsByName) {
+    this.startTime = System.currentTimeMillis() - (System.nanoTime() - startNanos) / 1000000;
+    this.startNanos = startNanos;
+    this.configSetsByName = configSetsByName;
+    this.startCollections = getCollections();
+    this.configSets = Collections.synchronizedList(new ArrayList<ConfigSetStats>());
+  }
+
+  /**
+   * Sets the time spent parsing the options.
+   *
+   * @param nanos
+   *          the duration in nanoseconds.
+   */
+  public void setOptionsTime(long nanos) {
+    optionsNanos = nanos;
+  }
+
+  /**
+   * Sets the time spent building the class hierarchy index.
+   *
+   * @param nanos
+   *          the duration in nanoseconds.
+   * @param indexedClassCount
+   *          the number of indexed classes.
+   */
+  public void setHierarchyTime(long nanos, int indexedClassCount) {
+    hierarchyNanos = nanos;
+    classCount = indexedClassCount;
+  }
+
+  /**
+   * Adds the statistics of a config set. Config sets may be generated
+   * concurrently, each one filling its own statistics.
+   *
+   * @param configSet
+   *          the config set.
+   * @return the statistics to fill.
+   */
+  public ConfigSetStats addConfigSet(Map<String, String> configSet) {
+    String name = null;
+    for (Map.Entry<String, Map<String, String>> configSetEntry : configSetsByName.entrySet()) {
+      if (configSetEntry.getValue() == configSet) {
+        name = configSetEntry.getKey();
+      }
+    }
+    ConfigSetStats stats = new ConfigSetStats(name, configSet.get("rootClassName"));
+    configSets.add(stats);
+    return stats;
+  }
+
+  /**
+   * Writes the report, ending the run.
+   *
+   * @param file
+   *          the report file.
+   * @throws IOException
+   *           whenever an I/O exception occurs.
+   */
+  public void write(File file) throws IOException {
+    long totalNanos = System.nanoTime() - startNanos;
+    List<ConfigSetStats> sortedConfigSets;
+    synchronized (configSets) {
+      sortedConfigSets = new ArrayList<ConfigSetStats>(configSets);
+    }
+    Collections.sort(sortedConfigSets, new Comparator<ConfigSetStats>() {
+      @Override
+      public int compare(ConfigSetStats stats, ConfigSetStats otherStats) {
+        return String.valueOf(stats.name).compareTo(String.valueOf(otherStats.name));
+      }
+    });
+    SimpleDateFormat timestampFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.ROOT);
+    timestampFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+    JsonBuilder json = new JsonBuilder();
+    json.startObject(null);
+    json.value("formatVersion", FORMAT_VERSION);
+    json.value("startTime", timestampFormat.format(new Date(startTime)));
+    json.startArray("configSets");
+    for (ConfigSetStats stats : sortedConfigSets) {
+      json.startObject(null);
+      json.value("name", stats.name);
+      json.value("rootClassName", stats.rootClassName);
+      json.value("visitedClasses", stats.visitedClasses);
+      json.value("documentedClasses", stats.documentedClasses);
+      json.value("skippedInternal", stats.skippedInternal);
+      json.value("skippedDeprecated", stats.skippedDeprecated);
+      json.value("excludedSubtrees", stats.excludedSubtrees);
+      json.value("propertyRows", stats.propertyRows);
+      json.value("outputs", stats.outputs);
+      json.value("bytesWritten", stats.bytesWritten);
+      json.millis("hierarchyMs", stats.hierarchyNanos);
+      json.millis("renderingMs", stats.renderingNanos);
+      json.millis("ioMs", stats.ioNanos);
+      json.endObject();
+    }
+    json.endArray();
+    json.startObject("run");
+    json.value("classes", classCount);
+    json.millis("optionsMs", optionsNanos);
+    json.millis("hierarchyMs", hierarchyNanos);
+    json.millis("totalMs", totalNanos);
+    json.endObject();
+    writeJvm(json);
+    json.endObject();
+
+    Writer out = new OutputStreamWriter(new FileOutputStream(file), UTF_8);
+    try {
+      out.write(json.toString());
+    } finally {
+      out.close();
+    }
+  }
+
+  private void writeJvm(JsonBuilder json) {
+    Runtime runtime = Runtime.getRuntime();
+    MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+    long peakHeap = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+        peakHeap += pool.getPeakUsage().getUsed();
+      }
+    }
+    json.startObject("jvm");
+    json.value("version", System.getProperty("java.version"));
+    json.value("vendor", System.getProperty("java.vendor"));
+    json.value("availableProcessors", runtime.availableProcessors());
+    json.value("heapUsedBytes", heap.getUsed());
+    json.value("heapCommittedBytes", heap.getCommitted());
+    json.value("heapMaxBytes", heap.getMax());
+    // Peak of each heap pool since the JVM start, summed up.
+    json.value("peakHeapBytes", peakHeap);
+    json.startArray("gc");
+    for (Map.Entry<String, long[]> collection : getCollections().entrySet()) {
+      long[] start = startCollections.get(collection.getKey());
+      json.startObject(null);
+      json.value("name", collection.getKey());
+      json.value("collections", collection.getValue()[0] - (start != null ? start[0] : 0));
+      json.value("timeMs", collection.getValue()[1] - (start != null ? start[1] : 0));
+      json.endObject();
+    }
+    json.endArray();
+    json.endObject();
+  }
+
+  private static Map<String, long[]> getCollections() {
+    Map<String, long[]> collections = new LinkedHashMap<String, long[]>();
+    for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+      collections.put(collector.getName(), new long[]{Math.max(0, collector.getCollectionCount()),
+          Math.max(0, collector.getCollectionTime())});
+    }
+    return collections;
+  }
+
+  /**
+   * Statistics of a config set.
+   */
+  public static final class ConfigSetStats {
+
+    private final String name;
+    private final String rootClassName;
+    private int          visitedClasses;
+    private int          documentedClasses;
+    private int          skippedInternal;
+    private int          skippedDeprecated;
+    private int          excludedSubtrees;
+    private int          propertyRows;
+    private int          outputs;
+    private long         bytesWritten;
+    private long         hierarchyNanos;
+    private long         renderingNanos;
+    private long         ioNanos;
+
+    private ConfigSetStats(String name, String rootClassName) {
+      this.name = name;
+      this.rootClassName = rootClassName;
+    }
+
+    /**
+     * Counts a class visited while classifying the hierarchy.
+     *
+     * @param internal
+     *          whether the class is skipped as internal.
+     * @param deprecated
+     *          whether the class is skipped as deprecated.
+     * @param propertyRowCount
+     *          the number of property rows of the class, if documented.
+     */
+    public void addVisitedClass(boolean internal, boolean deprecated, int propertyRowCount) {
+      visitedClasses++;
+      if (internal) {
+        skippedInternal++;
+      } else if (deprecated) {
+        skippedDeprecated++;
+      } else {
+        documentedClasses++;
+        propertyRows += propertyRowCount;
+      }
+    }
+
+    /**
+     * Counts a subtree excluded by the config set.
+     */
+    public void addExcludedSubtree() {
+      excludedSubtrees++;
+    }
+
+    /**
+     * Counts a closed output.
+     *
+     * @param bytes
+     *          the size of the output.
+     * @param nanos
+     *          the time spent flushing, closing and committing the output.
+     */
+    public void addOutput(long bytes, long nanos) {
+      outputs++;
+      bytesWritten += bytes;
+      ioNanos += nanos;
+    }
+
+    /**
+     * Sets the time spent classifying the hierarchy.
+     *
+     * @param nanos
+     *          the duration in nanoseconds.
+     */
+    public void setHierarchyTime(long nanos) {
+      hierarchyNanos = nanos;
+    }
+
+    /**
+     * Sets the time spent rendering, i.e. generating the outputs apart from
+     * their I/O.
+     *
+     * @param nanos
+     *          the duration in nanoseconds.
+     */
+    public void setRenderingTime(long nanos) {
+      renderingNanos = nanos;
+    }
+
+    /**
+     * Gets the time spent in I/O so far.
+     *
+     * @return the duration in nanoseconds.
+     */
+    public long getIoTime() {
+      return ioNanos;
+    }
+  }
+
+  /**
+   * Minimal indenting JSON builder.
+   */
+  private static final class JsonBuilder {
+
+    private final StringBuilder buff = new StringBuilder();
+    private int                 depth;
+    private boolean             first = true;
+
+    private void startObject(String name) {
+      open(name, '{');
+    }
+
+    private void endObject() {
+      close('}');
+    }
+
+    private void startArray(String name) {
+      open(name, '[');
+    }
+
+    private void endArray() {
+      close(']');
+    }
+
+    private void value(String name, long value) {
+      name(name);
+      buff.append(value);
+    }
+
+    private void value(String name, String value) {
+      name(name);
+      if (value == null) {
+        buff.append("null");
+      } else {
+        string(value);
+      }
+    }
+
+    private void millis(String name, long nanos) {
+      name(name);
+      buff.append(String.format(Locale.ROOT, "%.3f", nanos / 1000000.0));
+    }
+
+    private void open(String name, char bracket) {
+      name(name);
+      buff.append(bracket);
+      depth++;
+      first = true;
+    }
+
+    private void close(char bracket) {
+      depth--;
+      if (!first) {
+        newLine();
+      }
+      buff.append(bracket);
+      first = false;
+      if (depth == 0) {
+        buff.append('\n');
+      }
+    }
+
+    private void name(String name) {
+      if (!first) {
+        buff.append(',');
+      }
+      if (depth > 0) {
+        newLine();
+      }
+      first = false;
+      if (name != null) {
+        string(name);
+        buff.append(" : ");
+      }
+    }
+
+    private void newLine() {
+      buff.append('\n');
+      for (int i = 0; i < depth; i++) {
+        buff.append("  ");
+      }
+    }
+
+    private void string(String value) {
+      buff.append('"');
+      for (int i = 0; i < value.length(); i++) {
+        char c = value.charAt(i);
+        if (c == '"' || c == '\\') {
+          buff.append('\\').append(c);
+        } else if (c < 0x20) {
+          buff.append(String.format("\\u%04x", (int) c));
+        } else {
+          buff.append(c);
+        }
+      }
+      buff.append('"');
+    }
+
+    @Override
+    public String toString() {
+      return buff.toString();
+    }
+  }
+}
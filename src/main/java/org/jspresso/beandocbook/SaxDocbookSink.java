@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2005-2016 Vincent Vandenschrick. All rights reserved.
+ *
+ *  This file is part of the Jspresso framework.
+ *
+ *  Jspresso is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Jspresso is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with Jspresso.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jspresso.beandocbook;
+
+import java.io.IOException;
+
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * DocBook sink streaming the structure as SAX events to a content handler,
+ * e.g. a TrAX transformer handler, without writing nor parsing the DocBook
+ * text. Only the markup fragments, i.e. converted comments and links, are
+ * tokenized on the fly.
+ *
+ * @version $LastChangedRevision: 3701 $
+ * @author Vincent Vandenschrick
+ */
+public class SaxDocbookSink implements DocbookSink {
+
+  private static final String CDATA = "CDATA";
+
+  private final ContentHandler handler;
+  private final StringBuilder  text;
+
+  /**
+   * Constructs a new <code>SaxDocbookSink</code> instance.
+   *
+   * @param handler
+   *          the content handler receiving the events.
+   */
+  public SaxDocbookSink(ContentHandler handler) {
+    this.handler = handler;
+    this.text = new StringBuilder();
+  }
+
+  @Override
+  public void startDocument() throws IOException {
+    try {
+      handler.startDocument();
+    } catch (SAXException ex) {
+      throw new IOException(ex);
+    }
+  }
+
+  @Override
+  public void endDocument() throws IOException {
+    try {
+      handler.endDocument();
+    } catch (SAXException ex) {
+      throw new IOException(ex);
+    }
+  }
+
+  @Override
+  public void startElement(String name, String... attributes) throws IOException {
+    try {
+      handler.startElement("", name, name, toAttributes(attributes));
+    } catch (SAXException ex) {
+      throw new IOException(ex);
+    }
+  }
+
+  @Override
+  public void endElement(String name) throws IOException {
+    try {
+      handler.endElement("", name, name);
+    } catch (SAXException ex) {
+      throw new IOException(ex);
+    }
+  }
+
+  @Override
+  public void emptyElement(String name, String... attributes) throws IOException {
+    startElement(name, attributes);
+    endElement(name);
+  }
+
+  @Override
+  public void characters(String characters) throws IOException {
+    try {
+      handler.characters(characters.toCharArray(), 0, characters.length());
+    } catch (SAXException ex) {
+      throw new IOException(ex);
+    }
+  }
+
+  @Override
+  public void processingInstruction(String target, String data) throws IOException {
+    try {
+      handler.processingInstruction(target, data);
+    } catch (SAXException ex) {
+      throw new IOException(ex);
+    }
+  }
+
+  @Override
+  public void endLine() {
+    // The text layout is irrelevant to events.
+  }
+
+  @Override
+  public void markup(String markup) throws IOException {
+    try {
+      int length = markup.length();
+      int i = 0;
+      while (i < length) {
+        char c = markup.charAt(i);
+        int tagEnd = c == '<' ? markup.indexOf('>', i) : -1;
+        if (tagEnd > i + 1) {
+          flushText();
+          handleTag(markup, i + 1, tagEnd);
+          i = tagEnd + 1;
+        } else if (c == '&') {
+          i = appendReference(markup, i, text);
+        } else {
+          text.append(c);
+          i++;
+        }
+      }
+      flushText();
+    } catch (SAXException ex) {
+      throw new IOException(ex);
+    }
+  }
+
+  private void handleTag(String markup, int start, int end) throws SAXException {
+    char first = markup.charAt(start);
+    if (first == '/') {
+      String name = markup.substring(start + 1, end).trim();
+      handler.endElement("", name, name);
+    } else if (first == '?') {
+      String instruction = markup.substring(start + 1, markup.charAt(end - 1) == '?' ? end - 1 : end);
+      int separator = instruction.indexOf(' ');
+      if (separator < 0) {
+        handler.processingInstruction(instruction, "");
+      } else {
+        handler.processingInstruction(instruction.substring(0, separator), instruction.substring(separator + 1)
+                                                                                      .trim());
+      }
+    } else if (first == '!') {
+      // Comments and declarations carry no content.
+      return;
+    } else {
+      boolean empty = markup.charAt(end - 1) == '/';
+      int tagEnd = empty ? end - 1 : end;
+      int i = start;
+      while (i < tagEnd && !Character.isWhitespace(markup.charAt(i))) {
+        i++;
+      }
+      String name = markup.substring(start, i);
+      AttributesImpl attributes = new AttributesImpl();
+      while (i < tagEnd) {
+        int equals = markup.indexOf('=', i);
+        if (equals < 0 || equals >= tagEnd) {
+          break;
+        }
+        String attributeName = markup.substring(i, equals).trim();
+        int quote = equals + 1;
+        while (quote < tagEnd && Character.isWhitespace(markup.charAt(quote))) {
+          quote++;
+        }
+        int valueEnd = quote < tagEnd ? markup.indexOf(markup.charAt(quote), quote + 1) : -1;
+        if (valueEnd < 0 || valueEnd >= tagEnd) {
+          break;
+        }
+        StringBuilder value = new StringBuilder();
+        for (int j = quote + 1; j < valueEnd; ) {
+          if (markup.charAt(j) == '&') {
+            j = appendReference(markup.substring(0, valueEnd), j, value);
+          } else {
+            value.append(markup.charAt(j++));
+          }
+        }
+        attributes.addAttribute("", attributeName, attributeName, CDATA, value.toString());
+        i = valueEnd + 1;
+      }
+      handler.startElement("", name, name, attributes);
+      if (empty) {
+        handler.endElement("", name, name);
+      }
+    }
+  }
+
+  private static int appendReference(String markup, int start, StringBuilder buff) {
+    int end = markup.indexOf(';', start);
+    if (end > start + 1 && end - start < 12) {
+      String reference = markup.substring(start + 1, end);
+      int c = -1;
+      if (reference.startsWith("#x") || reference.startsWith("#X")) {
+        c = parseCodePoint(reference.substring(2), 16);
+      } else if (reference.startsWith("#")) {
+        c = parseCodePoint(reference.substring(1), 10);
+      } else if ("lt".equals(reference)) {
+        c = '<';
+      } else if ("gt".equals(reference)) {
+        c = '>';
+      } else if ("amp".equals(reference)) {
+        c = '&';
+      } else if ("quot".equals(reference)) {
+        c = '"';
+      } else if ("apos".equals(reference)) {
+        c = '\'';
+      } else if ("nbsp".equals(reference)) {
+        c = 0xA0;
+      }
+      if (c >= 0) {
+        buff.appendCodePoint(c);
+        return end + 1;
+      }
+    }
+    buff.append('&');
+    return start + 1;
+  }
+
+  private static int parseCodePoint(String digits, int radix) {
+    try {
+      int c = Integer.parseInt(digits, radix);
+      return Character.isValidCodePoint(c) ? c : -1;
+    } catch (NumberFormatException ex) {
+      return -1;
+    }
+  }
+
+  private void flushText() throws SAXException {
+    if (text.length() > 0) {
+      char[] chars = new char[text.length()];
+      text.getChars(0, chars.length, chars, 0);
+      handler.characters(chars, 0, chars.length);
+      text.setLength(0);
+    }
+  }
+
+  private static AttributesImpl toAttributes(String... attributes) {
+    AttributesImpl saxAttributes = new AttributesImpl();
+    for (int i = 0; i + 1 < attributes.length; i += 2) {
+      saxAttributes.addAttribute("", attributes[i], attributes[i], CDATA, attributes[i + 1]);
+    }
+    return saxAttributes;
+  }
+}
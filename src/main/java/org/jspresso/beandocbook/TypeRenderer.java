@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2005-2016 Vincent Vandenschrick. All rights reserved.
+ *
+ *  This file is part of the Jspresso framework.
+ *
+ *  Jspresso is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Jspresso is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with Jspresso.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jspresso.beandocbook;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.sun.javadoc.ParameterizedType;
+import com.sun.javadoc.Type;
+import com.sun.javadoc.WildcardType;
+
+/**
+ * Renders property types to their final markup. Types are rendered once per
+ * output format and javadoc run, keyed by their full signature, then served
+ * from the cache.
+ *
+ * @version $LastChangedRevision: 3701 $
+ * @author Vincent Vandenschrick
+ */
+public class TypeRenderer {
+
+  private final Map<String, String> renderedTypes;
+
+  /**
+   * Constructs a new <code>TypeRenderer</code> instance.
+   */
+  public TypeRenderer() {
+    renderedTypes = new ConcurrentHashMap<String, String>();
+  }
+
+  /**
+   * Renders a type.
+   *
+   * @param type
+   *          the type to render.
+   * @param doclet
+   *          the doclet providing the output format.
+   * @return the type markup.
+   */
+  public String render(Type type, AbstractBeanFormatDoclet doclet) {
+    StringBuilder key = new StringBuilder(doclet.getOutputExtension()).append('|');
+    appendSignature(type, key);
+    String signature = key.toString();
+    String markup = renderedTypes.get(signature);
+    if (markup == null) {
+      StringBuilder buff = new StringBuilder();
+      appendType(type, true, doclet, buff);
+      markup = buff.toString();
+      renderedTypes.put(signature, markup);
+    }
+    return markup;
+  }
+
+  private void appendType(Type type, boolean topLevel, AbstractBeanFormatDoclet doclet, StringBuilder buff) {
+    WildcardType wildcardType = type.asWildcardType();
+    if (wildcardType != null) {
+      buff.append("?");
+      appendBounds(" extends ", wildcardType.extendsBounds(), doclet, buff);
+      appendBounds(" super ", wildcardType.superBounds(), doclet, buff);
+      return;
+    }
+    if (type.qualifiedTypeName().startsWith("org.jspresso")) {
+      buff.append(doclet.createExternalLink(doclet.computeJavadocUrl(type.qualifiedTypeName()),
+          doclet.hyphenateCamelCase(type.simpleTypeName())));
+    } else if (topLevel) {
+      buff.append(doclet.hyphenateCamelCase(type.simpleTypeName()));
+    } else {
+      buff.append(type.simpleTypeName());
+    }
+    ParameterizedType pType = type.asParameterizedType();
+    if (pType != null) {
+      Type[] typeArguments = pType.typeArguments();
+      buff.append("&#x200B;&lt;&#x200B;");
+      for (int i = 0; i < typeArguments.length; i++) {
+        appendType(typeArguments[i], false, doclet, buff);
+        if (i < typeArguments.length - 1) {
+          buff.append("&#x200B;,");
+        }
+      }
+      buff.append("&#x200B;&gt;&#x200B;");
+    }
+    buff.append(type.dimension());
+  }
+
+  private void appendBounds(String keyword, Type[] bounds, AbstractBeanFormatDoclet doclet, StringBuilder buff) {
+    for (int i = 0; i < bounds.length; i++) {
+      buff.append(i == 0 ? keyword : " &amp; ");
+      appendType(bounds[i], false, doclet, buff);
+    }
+  }
+
+  private void appendSignature(Type type, StringBuilder buff) {
+    WildcardType wildcardType = type.asWildcardType();
+    if (wildcardType != null) {
+      buff.append('?');
+      for (Type bound : wildcardType.extendsBounds()) {
+        buff.append("+");
+        appendSignature(bound, buff);
+      }
+      for (Type bound : wildcardType.superBounds()) {
+        buff.append("-");
+        appendSignature(bound, buff);
+      }
+      return;
+    }
+    buff.append(type.qualifiedTypeName());
+    ParameterizedType pType = type.asParameterizedType();
+    if (pType != null) {
+      buff.append('<');
+      for (Type typeArgument : pType.typeArguments()) {
+        appendSignature(typeArgument, buff);
+        buff.append(',');
+      }
+      buff.append('>');
+    }
+    buff.append(type.dimension());
+  }
+}
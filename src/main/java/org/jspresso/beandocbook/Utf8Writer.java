@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2005-2016 Vincent Vandenschrick. All rights reserved.
+ *
+ *  This file is part of the Jspresso framework.
+ *
+ *  Jspresso is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Jspresso is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with Jspresso.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jspresso.beandocbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+/**
+ * UTF-8 writer encoding into a reusable byte buffer. ASCII text, i.e. most
+ * of the generated markup, is copied byte per char without going through a
+ * charset encoder, and pre-encoded markup is copied as is. Like the JDK
+ * encoder, it replaces unpaired surrogates by <code>?</code>.
+ *
+ * @version $LastChangedRevision: 3701 $
+ * @author Vincent Vandenschrick
+ */
+public class Utf8Writer extends Writer {
+
+  private final OutputStream out;
+  private final ByteBuffer   buffer;
+  private long               drainedCount;
+  private char               highSurrogate;
+  private boolean            closed;
+
+  /**
+   * Constructs a new <code>Utf8Writer</code> instance.
+   *
+   * @param out
+   *          the output stream the encoded bytes are written to.
+   * @param bufferSize
+   *          the size of the byte buffer.
+   */
+  public Utf8Writer(OutputStream out, int bufferSize) {
+    this.out = out;
+    this.buffer = ByteBuffer.allocate(Math.max(bufferSize, 16));
+  }
+
+  /**
+   * Writes pre-encoded markup.
+   *
+   * @param markup
+   *          the markup.
+   * @throws IOException
+   *           whenever an I/O error occurs.
+   */
+  public void write(EncodedMarkup markup) throws IOException {
+    if (highSurrogate != 0) {
+      highSurrogate = 0;
+      encode('?');
+    }
+    byte[] bytes = markup.getBytes();
+    if (bytes.length > buffer.remaining()) {
+      drain();
+      if (bytes.length > buffer.capacity()) {
+        out.write(bytes);
+        drainedCount += bytes.length;
+        return;
+      }
+    }
+    buffer.put(bytes);
+  }
+
+  @Override
+  public void write(int c) throws IOException {
+    encode((char) c);
+  }
+
+  @Override
+  public void write(String str) throws IOException {
+    appendChars(str, 0, str.length());
+  }
+
+  @Override
+  public void write(String str, int off, int len) throws IOException {
+    appendChars(str, off, off + len);
+  }
+
+  @Override
+  public void write(char[] cbuf, int off, int len) throws IOException {
+    appendChars(CharBuffer.wrap(cbuf), off, off + len);
+  }
+
+  private void appendChars(CharSequence chars, int start, int end) throws IOException {
+    byte[] array = buffer.array();
+    int i = start;
+    while (i < end) {
+      if (highSurrogate == 0) {
+        // ASCII fast path.
+        int position = buffer.position();
+        int limit = buffer.limit();
+        while (i < end && position < limit) {
+          char c = chars.charAt(i);
+          if (c >= 0x80) {
+            break;
+          }
+          array[position++] = (byte) c;
+          i++;
+        }
+        buffer.position(position);
+      }
+      if (i < end) {
+        if (buffer.hasRemaining()) {
+          encode(chars.charAt(i++));
+        } else {
+          drain();
+        }
+      }
+    }
+  }
+
+  private void encode(char c) throws IOException {
+    if (buffer.remaining() < 4) {
+      drain();
+    }
+    if (highSurrogate != 0) {
+      char high = highSurrogate;
+      highSurrogate = 0;
+      if (Character.isLowSurrogate(c)) {
+        int codePoint = Character.toCodePoint(high, c);
+        buffer.put((byte) (0xF0 | (codePoint >> 18)));
+        buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+        buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+        buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+        return;
+      }
+      buffer.put((byte) '?');
+      if (buffer.remaining() < 3) {
+        drain();
+      }
+    }
+    if (c < 0x80) {
+      buffer.put((byte) c);
+    } else if (c < 0x800) {
+      buffer.put((byte) (0xC0 | (c >> 6)));
+      buffer.put((byte) (0x80 | (c & 0x3F)));
+    } else if (Character.isHighSurrogate(c)) {
+      highSurrogate = c;
+    } else if (Character.isLowSurrogate(c)) {
+      buffer.put((byte) '?');
+    } else {
+      buffer.put((byte) (0xE0 | (c >> 12)));
+      buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+      buffer.put((byte) (0x80 | (c & 0x3F)));
+    }
+  }
+
+  private void drain() throws IOException {
+    if (buffer.position() > 0) {
+      out.write(buffer.array(), 0, buffer.position());
+      drainedCount += buffer.position();
+      buffer.clear();
+    }
+  }
+
+  /**
+   * Gets the number of bytes encoded so far, whether already written to the
+   * output stream or still buffered.
+   *
+   * @return the byte count.
+   */
+  public long getByteCount() {
+    return drainedCount + buffer.position();
+  }
+
+  /**
+   * Computes the UTF-8 encoded length of a text.
+   *
+   * @param text
+   *          the text.
+   * @return the number of bytes.
+   */
+  public static long getEncodedLength(String text) {
+    long length = text.length();
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c >= 0x800 && !Character.isSurrogate(c)) {
+        length += 2;
+      } else if (c >= 0x80) {
+        // Two bytes per surrogate char, i.e. four per pair.
+        length++;
+      }
+    }
+    return length;
+  }
+
+  @Override
+  public void flush() throws IOException {
+    drain();
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    if (highSurrogate != 0) {
+      highSurrogate = 0;
+      encode('?');
+    }
+    drain();
+    out.close();
+  }
+}